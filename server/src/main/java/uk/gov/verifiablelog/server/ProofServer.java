@@ -0,0 +1,218 @@
+package uk.gov.verifiablelog.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import uk.gov.verifiablelog.ProofCodec;
+import uk.gov.verifiablelog.VerifiableLog;
+import uk.gov.verifiablelog.VerifiableLogSnapshot;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A minimal embedded HTTP server that serves the RFC 6962 get-sth, get-proof-by-hash, get-sth-consistency and
+ * get-entries endpoints from a {@link VerifiableLog}.
+ *
+ * Responses are binary rather than JSON: tree heads and proofs are encoded by {@link ProofCodec}, and entries are
+ * streamed as a sequence of {@code opaque leaf_input<0..2^24-1>} values. Each request is handled on its own virtual
+ * thread when the JVM supports them, and otherwise on a cached thread pool.
+ * @see <a href="https://tools.ietf.org/html/rfc6962#section-4">RFC 6962 §4</a>
+ */
+public class ProofServer {
+
+    private static final String CONTENT_TYPE = "application/octet-stream";
+    private static final int MAX_ENTRIES_PER_REQUEST = 1000;
+
+    private final VerifiableLog verifiableLog;
+    private final MerkleLeafStore merkleLeafStore;
+    private final ExecutorService executorService;
+    private HttpServer httpServer;
+
+    /**
+     * Creates a new instance of a {@link ProofServer} object that handles each request on its own thread.
+     * @param verifiableLog The {@link VerifiableLog} to serve tree heads and proofs from
+     * @param merkleLeafStore The {@link MerkleLeafStore} of the Verifiable Log, to serve entries from
+     */
+    public ProofServer(VerifiableLog verifiableLog, MerkleLeafStore merkleLeafStore) {
+        this(verifiableLog, merkleLeafStore, threadPerRequestExecutor());
+    }
+
+    /**
+     * Creates a new instance of a {@link ProofServer} object.
+     * @param verifiableLog The {@link VerifiableLog} to serve tree heads and proofs from
+     * @param merkleLeafStore The {@link MerkleLeafStore} of the Verifiable Log, to serve entries from
+     * @param executorService The executor to handle requests on, which is shut down when the server is stopped
+     */
+    public ProofServer(VerifiableLog verifiableLog, MerkleLeafStore merkleLeafStore, ExecutorService executorService) {
+        this.verifiableLog = verifiableLog;
+        this.merkleLeafStore = merkleLeafStore;
+        this.executorService = executorService;
+    }
+
+    /**
+     * Starts serving requests.
+     * @param address The address to listen on; use port 0 to pick any free port
+     * @throws IOException if the server cannot listen on the address
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        httpServer = HttpServer.create(address, 0);
+        httpServer.createContext("/ct/v1/get-sth", exchange -> handle(exchange, this::getSth));
+        httpServer.createContext("/ct/v1/get-proof-by-hash", exchange -> handle(exchange, this::getProofByHash));
+        httpServer.createContext("/ct/v1/get-sth-consistency", exchange -> handle(exchange, this::getSthConsistency));
+        httpServer.createContext("/ct/v1/get-entries", exchange -> handle(exchange, this::getEntries));
+        httpServer.setExecutor(executorService);
+        httpServer.start();
+    }
+
+    /**
+     * Gets the address the server is listening on.
+     * @return The address of the started server
+     */
+    public synchronized InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }
+
+    /**
+     * Stops serving requests, waiting at most the given time for requests being handled to complete.
+     * @param delaySeconds The maximum time to wait in seconds
+     */
+    public synchronized void stop(int delaySeconds) {
+        httpServer.stop(delaySeconds);
+        executorService.shutdown();
+    }
+
+    private void getSth(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        VerifiableLogSnapshot snapshot = verifiableLog.snapshot();
+        try (OutputStream out = sendBinary(exchange, ProofCodec.encodedTreeHeadLength(snapshot.getTreeHead()))) {
+            ProofCodec.writeTreeHead(out, snapshot.getTreeHead());
+        }
+    }
+
+    private void getProofByHash(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        byte[] leafHash = Base64.getDecoder().decode(requiredParameter(parameters, "hash"));
+        VerifiableLogSnapshot snapshot = verifiableLog.snapshot(intParameter(parameters, "tree_size"));
+        int leafIndex = snapshot.leafIndexOf(leafHash);
+        if (leafIndex < 0) {
+            sendError(exchange, 404, "leaf hash not found");
+            return;
+        }
+        List<byte[]> auditProof = snapshot.auditProof(leafIndex);
+        try (OutputStream out = sendBinary(exchange, ProofCodec.encodedAuditProofLength(auditProof))) {
+            ProofCodec.writeAuditProof(out, snapshot.getTreeSize(), leafIndex, auditProof);
+        }
+    }
+
+    private void getSthConsistency(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        int first = intParameter(parameters, "first");
+        VerifiableLogSnapshot snapshot = verifiableLog.snapshot(intParameter(parameters, "second"));
+        List<byte[]> consistencyProof = snapshot.consistencyProof(first);
+        try (OutputStream out = sendBinary(exchange, ProofCodec.encodedConsistencyProofLength(consistencyProof))) {
+            ProofCodec.writeConsistencyProof(out, first, snapshot.getTreeSize(), consistencyProof);
+        }
+    }
+
+    private void getEntries(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        int start = intParameter(parameters, "start");
+        int totalLeaves = merkleLeafStore.totalLeaves();
+        // as in RFC 6962, end is inclusive and may be reduced to what the log can return
+        int end = Math.min(Math.min(intParameter(parameters, "end"), totalLeaves - 1), start + MAX_ENTRIES_PER_REQUEST - 1);
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("start must be between 0 and end, and less than the tree size");
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(sendBinary(exchange, 0)))) {
+            for (int leafIndex = start; leafIndex <= end; leafIndex++) {
+                byte[] leafValue = merkleLeafStore.getLeafValue(leafIndex);
+                out.writeByte(leafValue.length >>> 16);
+                out.writeShort(leafValue.length);
+                out.write(leafValue);
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "method not allowed");
+                return;
+            }
+            handler.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IndexOutOfBoundsException e) {
+            sendError(exchange, 400, "index out of range");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // a response length of 0 means the response is streamed with chunked transfer encoding
+    private static OutputStream sendBinary(HttpExchange exchange, long responseLength) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, responseLength);
+        return exchange.getResponseBody();
+    }
+
+    private static void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
+        byte[] body = String.valueOf(message).getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"), URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static String requiredParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing parameter " + name);
+        }
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name) {
+        return Integer.parseInt(requiredParameter(parameters, name));
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread if the JVM supports them (Java 21 and later),
+     * and otherwise on a cached pool of platform threads.
+     * @return An executor that runs each request on its own thread
+     */
+    public static ExecutorService threadPerRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, Map<String, String> parameters) throws IOException;
+    }
+}
@@ -0,0 +1,178 @@
+package uk.gov.verifiablelog.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.verifiablelog.ProofCodec;
+import uk.gov.verifiablelog.TreeHead;
+import uk.gov.verifiablelog.VerifiableLog;
+import uk.gov.verifiablelog.VerifiableLogVerification;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.ConcurrentPowOfTwo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ProofServerLoadTests {
+    private static final int TREE_SIZE = 10000;
+
+    static {
+        // avoid Nagle/delayed-ACK stalls between the response headers and body on loopback
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private List<byte[]> leafValues;
+    private ProofServer proofServer;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        leafValues = new ArrayList<>();
+        for (int i = 0; i < TREE_SIZE; i++) {
+            leafValues.add(("leaf-" + i).getBytes("UTF-8"));
+        }
+        MerkleLeafStore leafStore = new MerkleLeafStore() {
+            @Override
+            public byte[] getLeafValue(int leafIndex) {
+                return leafValues.get(leafIndex);
+            }
+
+            @Override
+            public int totalLeaves() {
+                return leafValues.size();
+            }
+        };
+        VerifiableLog verifiableLog = new VerifiableLog(sha256(), leafStore, new ConcurrentPowOfTwo());
+        proofServer = new ProofServer(verifiableLog, leafStore);
+        proofServer.start(new InetSocketAddress("127.0.0.1", 0));
+        baseUrl = "http://127.0.0.1:" + proofServer.getAddress().getPort() + "/ct/v1/";
+    }
+
+    @After
+    public void tearDown() {
+        proofServer.stop(0);
+    }
+
+    @Test
+    public void getSth_returnsTreeHeadOfCurrentTree() throws Exception {
+        TreeHead treeHead = ProofCodec.readTreeHead(ByteBuffer.wrap(get("get-sth")));
+
+        assertThat(treeHead.getTreeSize(), is(TREE_SIZE));
+    }
+
+    @Test
+    public void getSthConsistency_returnsValidProof() throws Exception {
+        byte[] oldRoot = ProofCodec.readTreeHead(ByteBuffer.wrap(get("get-sth"))).getRootHash();
+        leafValues.add("appended".getBytes("UTF-8"));
+        byte[] newRoot = ProofCodec.readTreeHead(ByteBuffer.wrap(get("get-sth"))).getRootHash();
+
+        byte[] proof = get("get-sth-consistency?first=" + TREE_SIZE + "&second=" + (TREE_SIZE + 1));
+
+        assertThat(VerifiableLogVerification.isValidConsistencyProof(oldRoot, newRoot, ByteBuffer.wrap(proof)), is(true));
+    }
+
+    @Test
+    public void getEntries_streamsInclusiveRange() throws Exception {
+        ByteBuffer entries = ByteBuffer.wrap(get("get-entries?start=5&end=7"));
+
+        for (int i = 5; i <= 7; i++) {
+            int length = ((entries.get() & 0xFF) << 16) | (entries.getShort() & 0xFFFF);
+            byte[] entry = new byte[length];
+            entries.get(entry);
+            assertThat(new String(entry, "UTF-8"), is("leaf-" + i));
+        }
+        assertThat(entries.hasRemaining(), is(false));
+    }
+
+    @Test
+    public void badRequests_returnClientErrors() throws Exception {
+        assertThat(status("get-proof-by-hash?tree_size=10"), is(400));
+        assertThat(status("get-sth-consistency?first=10&second=" + (TREE_SIZE + 1)), is(400));
+        assertThat(status("get-proof-by-hash?tree_size=10&hash=" + encode(leafHash(leafValues.get(20)))), is(404));
+    }
+
+    @Test
+    public void concurrentProofRequests_returnValidProofs() throws Exception {
+        byte[] rootHash = ProofCodec.readTreeHead(ByteBuffer.wrap(get("get-sth"))).getRootHash();
+        int clients = 16;
+        int requestsPerClient = 200;
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                Random random = new Random(c);
+                results.add(executorService.submit(() -> {
+                    startLatch.await();
+                    int valid = 0;
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        byte[] leafValue = leafValues.get(random.nextInt(TREE_SIZE));
+                        byte[] proof = get("get-proof-by-hash?tree_size=" + TREE_SIZE + "&hash=" + encode(leafHash(leafValue)));
+                        if (VerifiableLogVerification.isValidAuditProof(rootHash, ByteBuffer.wrap(proof), leafValue)) {
+                            valid++;
+                        }
+                    }
+                    return valid;
+                }));
+            }
+            startLatch.countDown();
+            for (Future<Integer> result : results) {
+                assertThat(result.get(), is(requestsPerClient));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private byte[] get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private int status(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    private static String encode(byte[] bytes) throws IOException {
+        return URLEncoder.encode(Base64.getEncoder().encodeToString(bytes), "UTF-8");
+    }
+
+    private static byte[] leafHash(byte[] leafValue) throws NoSuchAlgorithmException {
+        MessageDigest messageDigest = sha256();
+        messageDigest.update((byte) 0x00);
+        return messageDigest.digest(leafValue);
+    }
+
+    private static MessageDigest sha256() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256");
+    }
+}
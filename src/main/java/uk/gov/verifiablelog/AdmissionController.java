@@ -0,0 +1,150 @@
+package uk.gov.verifiablelog;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs requests to a {@link VerifiableLog} in one of two lanes, according to their cost as estimated by a
+ * {@link ProofCostEstimator}, so that a few expensive requests cannot starve every other client. The subtrees looked
+ * up to estimate a request are not looked up again to run it.
+ *
+ * Requests estimated to read fewer leaves than a threshold run at once on the calling thread. Only a fixed number of
+ * more expensive requests run at once; further expensive requests wait their turn, in the order they arrived, and
+ * once a fixed number are waiting, more are rejected with a {@link RejectedExecutionException}.
+ */
+public class AdmissionController {
+
+    private final VerifiableLog verifiableLog;
+    private final ProofCostEstimator costEstimator;
+    private final long expensiveCost;
+    private final int maxWaiting;
+    private final Semaphore expensiveSlots;
+    private final AtomicInteger waiting;
+    private final AtomicLong expensiveCount;
+    private final AtomicLong rejectedCount;
+
+    /**
+     * Creates a new instance of an {@link AdmissionController} object.
+     * @param verifiableLog The {@link VerifiableLog} to run requests against
+     * @param expensiveCost The estimated number of leaves read from which a request is expensive
+     * @param maxRunning The maximum number of expensive requests run at once
+     * @param maxWaiting The maximum number of expensive requests waiting to run
+     */
+    public AdmissionController(VerifiableLog verifiableLog, long expensiveCost, int maxRunning, int maxWaiting) {
+        if (expensiveCost < 0 || maxRunning < 1 || maxWaiting < 0) {
+            throw new IllegalArgumentException("expensiveCost and maxWaiting must not be negative, and maxRunning must be positive");
+        }
+        this.verifiableLog = verifiableLog;
+        this.costEstimator = new ProofCostEstimator(verifiableLog);
+        this.expensiveCost = expensiveCost;
+        this.maxWaiting = maxWaiting;
+        this.expensiveSlots = new Semaphore(maxRunning, true);
+        this.waiting = new AtomicInteger();
+        this.expensiveCount = new AtomicLong();
+        this.rejectedCount = new AtomicLong();
+    }
+
+    /**
+     * Gets the specific root hash of the Verifiable Log for the given tree size, if admitted.
+     * @param treeSize The number of leaves in the Verifiable Log which should be included in the root hash
+     * @return The Merkle Tree root hash
+     * @throws RejectedExecutionException if the request is expensive and too many expensive requests are waiting
+     */
+    public byte[] getSpecificRootHash(int treeSize) {
+        SubtreePlan plan = costEstimator.rootHashPlan(treeSize);
+        return admit(plan.getLeafCost(), () -> verifiableLog.getSpecificRootHash(treeSize, plan));
+    }
+
+    /**
+     * The audit proof for the leaf value at a specified index of a Verifiable Log, if admitted.
+     * @param leafIndex The zero-based index of the leaf for which the audit proof is required
+     * @param treeSize The number of leaves in the Verifiable Log for which the audit proof is required
+     * @return The ordered list of Merkle Tree hashes that provide the audit proof for the specified leaf
+     * @throws RejectedExecutionException if the request is expensive and too many expensive requests are waiting
+     */
+    public List<byte[]> auditProof(int leafIndex, int treeSize) {
+        SubtreePlan plan = costEstimator.auditProofPlan(leafIndex, treeSize);
+        return admit(plan.getLeafCost(), () -> verifiableLog.auditProof(leafIndex, treeSize, plan));
+    }
+
+    /**
+     * The consistency proof of a Verifiable Log at two tree sizes, if admitted.
+     * @param treeSize1 The number of leaves in the smaller Verifiable Log
+     * @param treeSize2 The number of leaves in the larger Verifiable Log
+     * @return The ordered list of Merkle Tree hashes that provide the consistency proof between the specified tree sizes
+     * @throws RejectedExecutionException if the request is expensive and too many expensive requests are waiting
+     */
+    public List<byte[]> consistencyProof(int treeSize1, int treeSize2) {
+        SubtreePlan plan = costEstimator.consistencyProofPlan(treeSize1, treeSize2);
+        return admit(plan.getLeafCost(), () -> verifiableLog.consistencyProof(treeSize1, treeSize2, plan));
+    }
+
+    /**
+     * Runs a request in the lane for its cost, waiting for a turn if it is expensive.
+     * @param cost The estimated number of leaves the request reads
+     * @param request The request to run
+     * @param <T> The type of the result of the request
+     * @return The result of the request
+     * @throws RejectedExecutionException if the request is expensive and too many expensive requests are waiting,
+     * or the calling thread is interrupted while it waits
+     */
+    public <T> T admit(long cost, Supplier<T> request) {
+        if (cost < expensiveCost) {
+            return request.get();
+        }
+        try {
+            // unlike tryAcquire(), a timed tryAcquire does not take a slot ahead of requests already waiting
+            if (!expensiveSlots.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                if (waiting.incrementAndGet() > maxWaiting) {
+                    waiting.decrementAndGet();
+                    rejectedCount.incrementAndGet();
+                    throw new RejectedExecutionException("too many expensive requests are waiting");
+                }
+                try {
+                    expensiveSlots.acquire();
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("interrupted while waiting to run an expensive request", e);
+        }
+        try {
+            expensiveCount.incrementAndGet();
+            return request.get();
+        } finally {
+            expensiveSlots.release();
+        }
+    }
+
+    /**
+     * Gets the number of expensive requests waiting to run.
+     * @return The number of waiting requests
+     */
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    /**
+     * Gets the number of expensive requests that have been run.
+     * @return The number of expensive requests
+     */
+    public long getExpensiveCount() {
+        return expensiveCount.get();
+    }
+
+    /**
+     * Gets the number of expensive requests that have been rejected.
+     * @return The number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,181 @@
+package uk.gov.verifiablelog;
+
+import uk.gov.verifiablelog.store.AsyncMerkleLeafStore;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.MemoizationStore;
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+
+/**
+ * A Verifiable Log whose leaves are fetched from an {@link AsyncMerkleLeafStore}, and whose proofs and root hashes
+ * are returned as futures rather than blocking a thread while leaves are fetched.
+ *
+ * For each request, the subtrees whose root hashes are needed are first looked up in the {@link MemoizationStore},
+ * to find which leaves have to be fetched. Contiguous runs of those leaves are then all fetched at once, so the
+ * latency of a request is that of its slowest fetch rather than the sum of them all, and the hashes are computed
+ * when the last fetch completes. The {@link MemoizationStore} is used from the threads that complete the fetches,
+ * so it must be safe for use by multiple threads.
+ */
+public class AsyncVerifiableLog {
+
+    private final AsyncMerkleLeafStore asyncMerkleLeafStore;
+    private final VerifiableLog verifiableLog;
+
+    /**
+     * Creates a new instance of an {@link AsyncVerifiableLog} object without a memoization store.
+     * @param messageDigest A cryptographic hash function
+     * @param asyncMerkleLeafStore The store to fetch leaves from
+     */
+    public AsyncVerifiableLog(MessageDigest messageDigest, AsyncMerkleLeafStore asyncMerkleLeafStore) {
+        this(messageDigest, asyncMerkleLeafStore, null);
+    }
+
+    /**
+     * Creates a new instance of an {@link AsyncVerifiableLog} object.
+     * @param messageDigest A cryptographic hash function
+     * @param asyncMerkleLeafStore The store to fetch leaves from
+     * @param memoizationStore A store of known subtree root hashes, which must be safe for use by multiple threads
+     */
+    public AsyncVerifiableLog(MessageDigest messageDigest, AsyncMerkleLeafStore asyncMerkleLeafStore, MemoizationStore memoizationStore) {
+        this.asyncMerkleLeafStore = asyncMerkleLeafStore;
+        this.verifiableLog = new VerifiableLog(messageDigest, new BlockingLeafStore(asyncMerkleLeafStore), memoizationStore);
+    }
+
+    /**
+     * Gets the current root hash of the Verifiable Log created from all current leaf values ordered by index.
+     * @return A future of the Merkle Tree root hash
+     */
+    public CompletableFuture<byte[]> getCurrentRootHash() {
+        return getSpecificRootHash(asyncMerkleLeafStore.totalLeaves());
+    }
+
+    /**
+     * Gets the specific root hash of the Verifiable Log for the given tree size.
+     * @param treeSize The number of leaves in the Verifiable Log which should be included in the root hash
+     * @return A future of the Merkle Tree root hash
+     */
+    public CompletableFuture<byte[]> getSpecificRootHash(int treeSize) {
+        return compute(Collections.singletonList(new Subtree(0, treeSize)), (log, plan) -> log.getSpecificRootHash(treeSize, plan));
+    }
+
+    /**
+     * The audit proof for the leaf value at a specified index of a Verifiable Log.
+     * @param leafIndex The zero-based index of the leaf for which the audit proof is required
+     * @param treeSize The number of leaves in the Verifiable Log for which the audit proof is required
+     * @return A future of the ordered list of Merkle Tree hashes that provide the audit proof for the specified leaf
+     */
+    public CompletableFuture<List<byte[]>> auditProof(int leafIndex, int treeSize) {
+        return compute(Util.auditPathSubtrees(leafIndex, treeSize), (log, plan) -> log.auditProof(leafIndex, treeSize, plan));
+    }
+
+    /**
+     * The consistency proof of a Verifiable Log at two tree sizes.
+     * @param treeSize1 The number of leaves in the smaller Verifiable Log
+     * @param treeSize2 The number of leaves in the larger Verifiable Log
+     * @return A future of the ordered list of Merkle Tree hashes that provide the consistency proof between the
+     * specified tree sizes
+     */
+    public CompletableFuture<List<byte[]>> consistencyProof(int treeSize1, int treeSize2) {
+        if (treeSize1 <= 0) {
+            return failed(new IllegalArgumentException("treeSize1 must be strictly positive"));
+        }
+        return compute(Util.consistencyProofSubtrees(treeSize1, treeSize2), (log, plan) -> log.consistencyProof(treeSize1, treeSize2, plan));
+    }
+
+    private <T> CompletableFuture<T> compute(List<Subtree> subtrees, BiFunction<VerifiableLog, SubtreePlan, T> computation) {
+        SubtreePlan plan;
+        try {
+            plan = verifiableLog.plan(subtrees, SubtreePlan.DEFAULT_MAX_LOOKUPS);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        BitSet missingLeaves = new BitSet();
+        for (Subtree subtree : plan.getUnknown()) {
+            missingLeaves.set(subtree.getStart(), subtree.getStart() + subtree.getSize());
+        }
+
+        List<Integer> runStarts = new ArrayList<>();
+        List<CompletableFuture<List<byte[]>>> runs = new ArrayList<>();
+        for (int start = missingLeaves.nextSetBit(0); start >= 0; start = missingLeaves.nextSetBit(start)) {
+            int end = missingLeaves.nextClearBit(start);
+            runStarts.add(start);
+            runs.add(asyncMerkleLeafStore.getLeafValues(start, end));
+            start = end;
+        }
+
+        return CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<Integer, byte[]> fetchedLeaves = new HashMap<>();
+            for (int run = 0; run < runs.size(); run++) {
+                List<byte[]> leafValues = runs.get(run).join();
+                for (int i = 0; i < leafValues.size(); i++) {
+                    fetchedLeaves.put(runStarts.get(run) + i, leafValues.get(i));
+                }
+            }
+            return computation.apply(verifiableLog.withLeafStore(new FetchedLeafStore(fetchedLeaves, asyncMerkleLeafStore)), plan);
+        });
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    // serves the leaves fetched for a request, and waits for any others, e.g. if a memoized hash was evicted since
+    private static class FetchedLeafStore implements MerkleLeafStore {
+        private final Map<Integer, byte[]> fetchedLeaves;
+        private final AsyncMerkleLeafStore asyncMerkleLeafStore;
+
+        FetchedLeafStore(Map<Integer, byte[]> fetchedLeaves, AsyncMerkleLeafStore asyncMerkleLeafStore) {
+            this.fetchedLeaves = fetchedLeaves;
+            this.asyncMerkleLeafStore = asyncMerkleLeafStore;
+        }
+
+        @Override
+        public byte[] getLeafValue(int leafIndex) {
+            byte[] leafValue = fetchedLeaves.get(leafIndex);
+            return leafValue != null ? leafValue : join(asyncMerkleLeafStore.getLeafValue(leafIndex));
+        }
+
+        @Override
+        public int totalLeaves() {
+            return asyncMerkleLeafStore.totalLeaves();
+        }
+    }
+
+    private static class BlockingLeafStore implements MerkleLeafStore {
+        private final AsyncMerkleLeafStore asyncMerkleLeafStore;
+
+        BlockingLeafStore(AsyncMerkleLeafStore asyncMerkleLeafStore) {
+            this.asyncMerkleLeafStore = asyncMerkleLeafStore;
+        }
+
+        @Override
+        public byte[] getLeafValue(int leafIndex) {
+            return join(asyncMerkleLeafStore.getLeafValue(leafIndex));
+        }
+
+        @Override
+        public int totalLeaves() {
+            return asyncMerkleLeafStore.totalLeaves();
+        }
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> leafValue) {
+        try {
+            return leafValue.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+}
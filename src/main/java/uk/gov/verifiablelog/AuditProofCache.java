@@ -0,0 +1,156 @@
+package uk.gov.verifiablelog;
+
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache of the latest audit proofs of frequently queried leaves of a {@link VerifiableLog}.
+ *
+ * The subtrees to the left of a leaf in its audit proof are perfect, and never change as the Verifiable Log grows.
+ * The subtrees to its right are built from the leaves after it, so each cached audit proof also keeps the right-edge
+ * frontier of those leaves: the hashes of the largest perfect subtrees they are made of. When a cached audit proof is
+ * requested for a larger tree size, only the leaves appended since are read and folded into the frontier, and the
+ * subtrees to the right of the leaf are computed from it, without any help from a memoization store.
+ */
+public class AuditProofCache {
+
+    private final VerifiableLog verifiableLog;
+    private final Map<Integer, CachedAuditProof> cachedAuditProofs;
+
+    /**
+     * Creates a new instance of an {@link AuditProofCache} object.
+     * @param verifiableLog The {@link VerifiableLog} to compute audit proofs with
+     * @param maxLeaves The maximum number of leaves to cache audit proofs for, evicting the least recently used first
+     */
+    public AuditProofCache(VerifiableLog verifiableLog, int maxLeaves) {
+        this.verifiableLog = verifiableLog;
+        this.cachedAuditProofs = new LinkedHashMap<Integer, CachedAuditProof>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedAuditProof> eldest) {
+                return size() > maxLeaves;
+            }
+        };
+    }
+
+    /**
+     * The audit proof for the leaf value at a specified index of the Verifiable Log, refreshed from the cached
+     * audit proof for the leaf if there is one.
+     * @param leafIndex The zero-based index of the leaf for which the audit proof is required
+     * @param treeSize The number of leaves in the Verifiable Log for which the audit proof is required
+     * @return The ordered list of Merkle Tree hashes that provide the audit proof for the specified leaf
+     */
+    public List<byte[]> auditProof(int leafIndex, int treeSize) {
+        CachedAuditProof cached;
+        synchronized (cachedAuditProofs) {
+            cached = cachedAuditProofs.get(leafIndex);
+        }
+        if (cached == null || cached.treeSize != treeSize) {
+            cached = refresh(cached, leafIndex, treeSize);
+            synchronized (cachedAuditProofs) {
+                cachedAuditProofs.put(leafIndex, cached);
+            }
+        }
+        return new ArrayList<>(cached.hashes);
+    }
+
+    private CachedAuditProof refresh(CachedAuditProof cached, int leafIndex, int treeSize) {
+        // subtrees to the left of the leaf are the same at every tree size
+        Map<Subtree, byte[]> knownHashes = new HashMap<>();
+        if (cached != null) {
+            for (int i = 0; i < cached.subtrees.size(); i++) {
+                knownHashes.put(cached.subtrees.get(i), cached.hashes.get(i));
+            }
+        }
+
+        List<Subtree> frontier;
+        List<byte[]> frontierHashes;
+        if (cached != null && cached.treeSize <= treeSize) {
+            frontier = new ArrayList<>(cached.frontier);
+            frontierHashes = new ArrayList<>(cached.frontierHashes);
+            for (int appended = cached.treeSize; appended < treeSize; appended++) {
+                append(frontier, frontierHashes, appended);
+            }
+        } else {
+            frontier = perfectSubtrees(leafIndex + 1, treeSize);
+            frontierHashes = new ArrayList<>();
+            for (Subtree subtree : frontier) {
+                frontierHashes.add(verifiableLog.subtreeHash(subtree.getStart(), subtree.getSize()));
+            }
+        }
+
+        List<Subtree> subtrees = Util.auditPathSubtrees(leafIndex, treeSize);
+        List<byte[]> hashes = new ArrayList<>();
+        // subtrees to the right of the leaf are ordered from left to right, as is the frontier they are made of
+        int next = 0;
+        for (Subtree subtree : subtrees) {
+            if (subtree.getStart() < leafIndex) {
+                byte[] hash = knownHashes.get(subtree);
+                hashes.add(hash != null ? hash : verifiableLog.subtreeHash(subtree.getStart(), subtree.getSize()));
+            } else {
+                int first = next;
+                while (next < frontier.size() && frontier.get(next).getStart() < subtree.getStart() + subtree.getSize()) {
+                    next++;
+                }
+                byte[] hash = frontierHashes.get(next - 1);
+                for (int i = next - 2; i >= first; i--) {
+                    hash = verifiableLog.branchHash(frontierHashes.get(i), hash);
+                }
+                hashes.add(hash);
+            }
+        }
+        return new CachedAuditProof(treeSize, subtrees, hashes, Collections.unmodifiableList(frontier), Collections.unmodifiableList(frontierHashes));
+    }
+
+    // adds a leaf to the frontier, merging the last two perfect subtrees for as long as they are siblings
+    private void append(List<Subtree> frontier, List<byte[]> frontierHashes, int leafIndex) {
+        Subtree subtree = new Subtree(leafIndex, 1);
+        byte[] hash = verifiableLog.subtreeHash(leafIndex, 1);
+        while (!frontier.isEmpty()) {
+            Subtree last = frontier.get(frontier.size() - 1);
+            if (last.getSize() != subtree.getSize() || last.getStart() % (2 * last.getSize()) != 0) {
+                break;
+            }
+            hash = verifiableLog.branchHash(frontierHashes.remove(frontierHashes.size() - 1), hash);
+            frontier.remove(frontier.size() - 1);
+            subtree = new Subtree(last.getStart(), 2 * last.getSize());
+        }
+        frontier.add(subtree);
+        frontierHashes.add(hash);
+    }
+
+    // the largest perfect subtrees that the leaves from start (inclusive) to end (exclusive) are made of
+    private static List<Subtree> perfectSubtrees(int start, int end) {
+        List<Subtree> subtrees = new ArrayList<>();
+        while (start < end) {
+            int size = start == 0 ? Integer.highestOneBit(end) : Integer.lowestOneBit(start);
+            while (size > end - start) {
+                size >>>= 1;
+            }
+            subtrees.add(new Subtree(start, size));
+            start += size;
+        }
+        return subtrees;
+    }
+
+    private static class CachedAuditProof {
+        private final int treeSize;
+        private final List<Subtree> subtrees;
+        private final List<byte[]> hashes;
+        private final List<Subtree> frontier;
+        private final List<byte[]> frontierHashes;
+
+        CachedAuditProof(int treeSize, List<Subtree> subtrees, List<byte[]> hashes, List<Subtree> frontier, List<byte[]> frontierHashes) {
+            this.treeSize = treeSize;
+            this.subtrees = subtrees;
+            this.hashes = hashes;
+            this.frontier = frontier;
+            this.frontierHashes = frontierHashes;
+        }
+    }
+}
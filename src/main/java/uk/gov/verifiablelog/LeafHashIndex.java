@@ -0,0 +1,181 @@
+package uk.gov.verifiablelog;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * A compact open-addressing index from Merkle Tree leaf hashes to leaf indexes.
+ *
+ * Each entry is packed into a single {@code long} slot holding a 32-bit fingerprint of the leaf hash and the leaf
+ * index, so the full leaf hash is never stored. Lookups therefore only yield candidate indexes, which the caller
+ * confirms against the real leaf hash.
+ *
+ * The index is safe for use by multiple threads. Lookups only wait while a batch of leaves is being added, and one
+ * thread at a time catches the index up to a tree size, hashing each batch of leaves before taking the write lock.
+ */
+class LeafHashIndex {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    // the number of leaves hashed between acquisitions of the write lock while catching up
+    private static final int CATCH_UP_BATCH_SIZE = 1 << 10;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object catchingUp = new Object();
+    private long[] slots;
+    private int mask;
+    private volatile int size;
+
+    /**
+     * Creates a new, empty instance of a {@link LeafHashIndex} object.
+     */
+    LeafHashIndex() {
+        slots = new long[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+        size = 0;
+    }
+
+    /**
+     * Gets the number of leaves that have been added to the index.
+     * @return The number of indexed leaves
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the leaf hash of a leaf to the index.
+     * @param leafHash The Merkle Tree leaf hash, which must be at least 4 bytes long
+     * @param leafIndex The zero-based index of the leaf
+     */
+    void add(byte[] leafHash, int leafIndex) {
+        lock.writeLock().lock();
+        try {
+            if (size + 1 > (slots.length / 3) * 2) {
+                resize(slots.length << 1);
+            }
+            int fingerprint = fingerprint(leafHash);
+            insert(slots, mask, pack(fingerprint, leafIndex), slot(fingerprint));
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the leaves from {@link #size()} up to a tree size to the index, if they have not been added already.
+     * @param treeSize The number of leaves the index must contain
+     * @param leafHash Computes the Merkle Tree leaf hash of the leaf at a zero-based index
+     */
+    void catchUp(int treeSize, IntFunction<byte[]> leafHash) {
+        if (treeSize <= size) {
+            return;
+        }
+        synchronized (catchingUp) {
+            while (size < treeSize) {
+                int start = size;
+                byte[][] leafHashes = new byte[Math.min(CATCH_UP_BATCH_SIZE, treeSize - start)][];
+                for (int i = 0; i < leafHashes.length; i++) {
+                    leafHashes[i] = leafHash.apply(start + i);
+                }
+                lock.writeLock().lock();
+                try {
+                    for (int i = 0; i < leafHashes.length; i++) {
+                        add(leafHashes[i], start + i);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the lowest leaf index whose leaf hash could be the given hash and is confirmed by the predicate. The
+     * predicate is called without holding any lock, lowest candidate first.
+     * @param leafHash The Merkle Tree leaf hash to look up
+     * @param isMatch Confirms whether the leaf at a candidate index really has the given leaf hash
+     * @return The lowest confirmed zero-based leaf index, or -1 if the leaf hash is not in the index
+     */
+    int indexOf(byte[] leafHash, IntPredicate isMatch) {
+        int[] candidates = candidates(fingerprint(leafHash));
+        Arrays.sort(candidates);
+        for (int candidate : candidates) {
+            if (isMatch.test(candidate)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private int[] candidates(int fingerprint) {
+        lock.readLock().lock();
+        try {
+            int[] candidates = new int[4];
+            int count = 0;
+            for (int i = slot(fingerprint) & mask; slots[i] != 0; i = (i + 1) & mask) {
+                if (fingerprint(slots[i]) == fingerprint) {
+                    if (count == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, count << 1);
+                    }
+                    candidates[count++] = leafIndex(slots[i]);
+                }
+            }
+            return Arrays.copyOf(candidates, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] resized = new long[capacity];
+        int resizedMask = capacity - 1;
+        for (long entry : slots) {
+            if (entry != 0) {
+                insert(resized, resizedMask, entry, slot(fingerprint(entry)));
+            }
+        }
+        slots = resized;
+        mask = resizedMask;
+    }
+
+    private static void insert(long[] slots, int mask, long entry, int slot) {
+        int i = slot & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = entry;
+    }
+
+    // leaf hashes are uniformly distributed, so their leading bytes can be used directly as the fingerprint
+    private static int fingerprint(byte[] leafHash) {
+        return readInt(leafHash, 0);
+    }
+
+    // the slot is derived from the fingerprint alone so that entries can be re-slotted when the table grows
+    private static int slot(int fingerprint) {
+        return fingerprint * 0x9E3779B9;
+    }
+
+    private static long pack(int fingerprint, int leafIndex) {
+        return ((long) fingerprint << 32) | ((leafIndex + 1L) & 0xFFFFFFFFL);
+    }
+
+    private static int fingerprint(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int leafIndex(long entry) {
+        return (int) (entry & 0xFFFFFFFFL) - 1;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24)
+                | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8)
+                | (bytes[offset + 3] & 0xFF);
+    }
+}
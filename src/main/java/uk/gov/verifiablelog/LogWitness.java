@@ -0,0 +1,150 @@
+package uk.gov.verifiablelog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tracks a Verifiable Log by consuming its leaves, so that published tree heads can be checked without asking the
+ * Verifiable Log for consistency proofs.
+ *
+ * The witness only keeps the compact frontier of the log, i.e. the root hashes of the perfect subtrees that the
+ * leaves consumed so far decompose into, which is at most one hash per bit of the tree size. Consuming a leaf and
+ * computing the current root hash both take O(log n) hash operations.
+ */
+public class LogWitness {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final MessageDigest messageDigest;
+    private final List<byte[]> frontier;
+    private int treeSize;
+
+    /**
+     * Creates a new instance of a {@link LogWitness} object for an empty Verifiable Log.
+     */
+    public LogWitness() {
+        this(0, new ArrayList<>());
+    }
+
+    private LogWitness(int treeSize, List<byte[]> frontier) {
+        this.messageDigest = Util.sha256Instance();
+        this.frontier = frontier;
+        this.treeSize = treeSize;
+    }
+
+    /**
+     * Consumes the next leaf of the Verifiable Log.
+     * @param leafData The raw data of the leaf at index {@link #getTreeSize()}
+     */
+    public synchronized void append(byte[] leafData) {
+        byte[] hash = Util.leafHash(leafData, messageDigest);
+        // each trailing one bit of the tree size is a perfect subtree of the same size as the one being completed
+        for (int size = treeSize; (size & 1) == 1; size >>>= 1) {
+            hash = Util.branchHash(frontier.remove(frontier.size() - 1), hash, messageDigest);
+        }
+        frontier.add(hash);
+        treeSize++;
+    }
+
+    /**
+     * Consumes the next leaves of the Verifiable Log.
+     * @param leafData The raw data of the leaves from index {@link #getTreeSize()} onwards, ordered by index
+     */
+    public synchronized void appendAll(List<byte[]> leafData) {
+        for (byte[] leaf : leafData) {
+            append(leaf);
+        }
+    }
+
+    /**
+     * Gets the number of leaves consumed so far.
+     * @return The tree size of the witnessed Verifiable Log
+     */
+    public synchronized int getTreeSize() {
+        return treeSize;
+    }
+
+    /**
+     * Gets the root hash of the Verifiable Log as computed from the leaves consumed so far.
+     * @return The Merkle Tree root hash
+     */
+    public synchronized byte[] getRootHash() {
+        if (frontier.isEmpty()) {
+            return messageDigest.digest();
+        }
+        byte[] rootHash = frontier.get(frontier.size() - 1);
+        for (int i = frontier.size() - 2; i >= 0; i--) {
+            rootHash = Util.branchHash(frontier.get(i), rootHash, messageDigest);
+        }
+        return rootHash;
+    }
+
+    /**
+     * Gets the tree head of the Verifiable Log as computed from the leaves consumed so far.
+     * @return The {@link TreeHead} of the witnessed Verifiable Log
+     */
+    public synchronized TreeHead getTreeHead() {
+        return new TreeHead(treeSize, getRootHash());
+    }
+
+    /**
+     * Checks a published tree head of the Verifiable Log against the leaves consumed so far.
+     * @param treeHead The published tree head, whose tree size must be the number of leaves consumed so far
+     * @return true if the published root hash matches the root hash computed from the consumed leaves, otherwise false
+     * @throws IllegalArgumentException if the tree size of the tree head is not the number of leaves consumed so far
+     */
+    public synchronized boolean isValidTreeHead(TreeHead treeHead) {
+        if (treeHead.getTreeSize() != treeSize) {
+            throw new IllegalArgumentException("witness has consumed " + treeSize + " leaves but tree head is for " + treeHead.getTreeSize());
+        }
+        return Arrays.equals(getRootHash(), treeHead.getRootHash());
+    }
+
+    /**
+     * Saves the state of the witness, so that it can be restored with {@link #readFrom(InputStream)}.
+     * @param out The stream to write to
+     * @throws IOException if writing to the stream fails
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeByte(FORMAT_VERSION);
+        dataOut.writeInt(treeSize);
+        for (byte[] hash : frontier) {
+            dataOut.writeByte(hash.length);
+            dataOut.write(hash);
+        }
+        dataOut.flush();
+    }
+
+    /**
+     * Restores a witness from a state saved by {@link #writeTo(OutputStream)}.
+     * @param in The stream to read from
+     * @return The restored {@link LogWitness}
+     * @throws IOException if reading from the stream fails or it does not contain a saved witness
+     */
+    public static LogWitness readFrom(InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        int formatVersion = dataIn.readUnsignedByte();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("unsupported witness format version " + formatVersion);
+        }
+        int treeSize = dataIn.readInt();
+        if (treeSize < 0) {
+            throw new IOException("invalid witness tree size " + treeSize);
+        }
+        List<byte[]> frontier = new ArrayList<>();
+        for (int i = 0; i < Integer.bitCount(treeSize); i++) {
+            byte[] hash = new byte[dataIn.readUnsignedByte()];
+            dataIn.readFully(hash);
+            frontier.add(hash);
+        }
+        return new LogWitness(treeSize, frontier);
+    }
+}
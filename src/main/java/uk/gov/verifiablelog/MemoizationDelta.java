@@ -0,0 +1,141 @@
+package uk.gov.verifiablelog;
+
+import uk.gov.verifiablelog.store.memoization.MemoizationStore;
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports the subtree hashes that a Verifiable Log gains when it grows from one tree size to another, and applies
+ * them to another {@link MemoizationStore}, so that a replica of the log can be kept warm by copying hashes rather
+ * than recomputing them from its leaves.
+ *
+ * A delta from tree size n to tree size m holds the hashes of every power-of-two subtree that is complete at m
+ * but not at n, from a minimum level upwards, followed by the hashes of the subtrees along the right-hand edge of
+ * the tree of size m that are not a power of two in size. The subtrees are implied by n, m and the minimum level,
+ * so only the hashes themselves are written, one after another:
+ * <pre>
+ *     uint32 magic;
+ *     uint8  version;
+ *     uint32 tree_size_1;
+ *     uint32 tree_size_2;
+ *     uint8  min_level;
+ *     uint8  hash_length;
+ *     opaque hashes[hash_length * number of subtrees];
+ * </pre>
+ */
+public final class MemoizationDelta {
+
+    private static final int MAGIC = 0x564c4d44;
+    private static final int VERSION = 1;
+
+    private MemoizationDelta() {
+    }
+
+    /**
+     * Writes the delta of every subtree hash gained between two tree sizes, including the leaf hashes.
+     * @param verifiableLog The Verifiable Log to take hashes from, computing any that its memoization store lacks
+     * @param treeSize1 The tree size the replica already has hashes for
+     * @param treeSize2 The tree size to bring the replica up to
+     * @param out The stream to write the delta to
+     * @return The number of hashes written
+     * @throws IOException if writing to the stream fails
+     */
+    public static int write(VerifiableLog verifiableLog, int treeSize1, int treeSize2, OutputStream out) throws IOException {
+        return write(verifiableLog, treeSize1, treeSize2, 0, out);
+    }
+
+    /**
+     * Writes the delta of the subtree hashes gained between two tree sizes, for subtrees of at least 2^minLevel
+     * leaves.
+     * @param verifiableLog The Verifiable Log to take hashes from, computing any that its memoization store lacks
+     * @param treeSize1 The tree size the replica already has hashes for
+     * @param treeSize2 The tree size to bring the replica up to
+     * @param minLevel The lowest level of the tree to include, where level 0 is the leaves
+     * @param out The stream to write the delta to
+     * @return The number of hashes written
+     * @throws IOException if writing to the stream fails
+     */
+    public static int write(VerifiableLog verifiableLog, int treeSize1, int treeSize2, int minLevel, OutputStream out) throws IOException {
+        if (treeSize1 < 0 || treeSize1 > treeSize2) {
+            throw new IllegalArgumentException("tree sizes must satisfy 0 <= treeSize1 <= treeSize2");
+        }
+        if (minLevel < 0 || minLevel > 30) {
+            throw new IllegalArgumentException("minLevel must be between 0 and 30");
+        }
+        List<Subtree> subtrees = subtrees(treeSize1, treeSize2, minLevel);
+        // computing the delta bottom-up reuses each new hash for its parent, even without a memoization store
+        VerifiableLog delta = verifiableLog.withRetainingCache(subtree -> subtree.getStart() + subtree.getSize() > treeSize1);
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeByte(VERSION);
+        dataOut.writeInt(treeSize1);
+        dataOut.writeInt(treeSize2);
+        dataOut.writeByte(minLevel);
+        dataOut.writeByte(verifiableLog.digestLength());
+        for (Subtree subtree : subtrees) {
+            dataOut.write(delta.subtreeHash(subtree.getStart(), subtree.getSize()));
+        }
+        dataOut.flush();
+        return subtrees.size();
+    }
+
+    /**
+     * Reads a delta and puts each of its subtree hashes into a memoization store.
+     * @param in The stream to read the delta from
+     * @param memoizationStore The store to put the hashes into
+     * @return The number of hashes read
+     * @throws IOException if reading from the stream fails or the stream ends before the delta does
+     * @throws IllegalArgumentException if the stream does not contain a valid delta
+     */
+    public static int apply(InputStream in, MemoizationStore memoizationStore) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        if (dataIn.readInt() != MAGIC || dataIn.readUnsignedByte() != VERSION) {
+            throw new IllegalArgumentException("not a memoization delta");
+        }
+        int treeSize1 = dataIn.readInt();
+        int treeSize2 = dataIn.readInt();
+        int minLevel = dataIn.readUnsignedByte();
+        int hashLength = dataIn.readUnsignedByte();
+        if (treeSize1 < 0 || treeSize1 > treeSize2 || minLevel > 30 || hashLength == 0) {
+            throw new IllegalArgumentException("malformed memoization delta header");
+        }
+        List<Subtree> subtrees = subtrees(treeSize1, treeSize2, minLevel);
+        for (Subtree subtree : subtrees) {
+            byte[] hash = new byte[hashLength];
+            dataIn.readFully(hash);
+            memoizationStore.put(subtree.getStart(), subtree.getSize(), hash);
+        }
+        return subtrees.size();
+    }
+
+    // the subtrees of a delta, ordered bottom-up and then left to right
+    static List<Subtree> subtrees(int treeSize1, int treeSize2, int minLevel) {
+        List<Subtree> subtrees = new ArrayList<>();
+        for (long size = 1L << minLevel; size <= treeSize2; size <<= 1) {
+            for (long start = (treeSize1 / size) * size; start + size <= treeSize2; start += size) {
+                subtrees.add(new Subtree((int) start, (int) size));
+            }
+        }
+        if (treeSize1 < treeSize2) {
+            List<Subtree> rightEdge = new ArrayList<>();
+            int start = 0;
+            int size = treeSize2;
+            while (Integer.bitCount(size) > 1) {
+                rightEdge.add(0, new Subtree(start, size));
+                int k = Util.k(size);
+                start += k;
+                size -= k;
+            }
+            subtrees.addAll(rightEdge);
+        }
+        return subtrees;
+    }
+}
@@ -0,0 +1,72 @@
+package uk.gov.verifiablelog;
+
+import java.util.List;
+
+/**
+ * The tree head of a Verifiable Log together with an audit proof for a leaf and a consistency proof from an
+ * earlier tree size, all at the tree size of the tree head.
+ */
+public final class ProofBundle {
+
+    private final TreeHead treeHead;
+    private final int leafIndex;
+    private final List<byte[]> auditProof;
+    private final int previousTreeSize;
+    private final List<byte[]> consistencyProof;
+
+    /**
+     * Creates a new instance of a {@link ProofBundle} object.
+     * @param treeHead The tree head that both proofs were computed for
+     * @param leafIndex The zero-based index of the leaf for which the audit proof was computed
+     * @param auditProof The audit proof for the leaf
+     * @param previousTreeSize The earlier tree size from which the consistency proof was computed
+     * @param consistencyProof The consistency proof from the earlier tree size to the tree size of the tree head
+     */
+    public ProofBundle(TreeHead treeHead, int leafIndex, List<byte[]> auditProof, int previousTreeSize, List<byte[]> consistencyProof) {
+        this.treeHead = treeHead;
+        this.leafIndex = leafIndex;
+        this.auditProof = auditProof;
+        this.previousTreeSize = previousTreeSize;
+        this.consistencyProof = consistencyProof;
+    }
+
+    /**
+     * Gets the tree head that both proofs were computed for.
+     * @return The tree head
+     */
+    public TreeHead getTreeHead() {
+        return treeHead;
+    }
+
+    /**
+     * Gets the index of the leaf for which the audit proof was computed.
+     * @return The zero-based index of the leaf
+     */
+    public int getLeafIndex() {
+        return leafIndex;
+    }
+
+    /**
+     * Gets the audit proof for the leaf.
+     * @return The ordered list of Merkle Tree hashes that provide the audit proof
+     */
+    public List<byte[]> getAuditProof() {
+        return auditProof;
+    }
+
+    /**
+     * Gets the earlier tree size from which the consistency proof was computed.
+     * @return The earlier tree size
+     */
+    public int getPreviousTreeSize() {
+        return previousTreeSize;
+    }
+
+    /**
+     * Gets the consistency proof from the earlier tree size to the tree size of the tree head.
+     * @return The ordered list of Merkle Tree hashes that provide the consistency proof
+     */
+    public List<byte[]> getConsistencyProof() {
+        return consistencyProof;
+    }
+}
@@ -0,0 +1,357 @@
+package uk.gov.verifiablelog;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodes and decodes proofs and tree heads of a Verifiable Log in the binary, length-prefixed TLS presentation
+ * language used by RFC 6962:
+ * <pre>
+ *     opaque NodeHash&lt;1..2^8-1&gt;;
+ *
+ *     struct {
+ *         uint64 tree_size;
+ *         uint64 leaf_index;
+ *         NodeHash inclusion_path&lt;0..2^16-1&gt;;
+ *     } AuditProof;
+ *
+ *     struct {
+ *         uint64 tree_size_1;
+ *         uint64 tree_size_2;
+ *         NodeHash consistency_path&lt;0..2^16-1&gt;;
+ *     } ConsistencyProof;
+ *
+ *     struct {
+ *         uint64 tree_size;
+ *         NodeHash root_hash;
+ *     } TreeHead;
+ * </pre>
+ * Decoding does not copy Merkle Tree hashes out of the encoded buffer; the hashes of a decoded proof are read-only
+ * views of the buffer.
+ * @see <a href="https://tools.ietf.org/html/rfc6962#section-3.4">RFC 6962 §3.4</a>
+ */
+public final class ProofCodec {
+
+    private ProofCodec() {
+    }
+
+    /**
+     * Calculates the number of bytes needed to encode an audit proof.
+     * @param auditProof The audit proof to encode
+     * @return The length of the encoded audit proof in bytes
+     */
+    public static int encodedAuditProofLength(List<byte[]> auditProof) {
+        return 8 + 8 + encodedPathLength(auditProof);
+    }
+
+    /**
+     * Encodes an audit proof into a buffer, starting at its current position.
+     * @param out The buffer to write to, which must have at least {@link #encodedAuditProofLength(List)} bytes remaining
+     * @param treeSize The number of leaves in the Verifiable Log that computed the audit proof
+     * @param leafIndex The zero-based index of the leaf for which the audit proof was computed
+     * @param auditProof The audit proof to encode
+     */
+    public static void writeAuditProof(ByteBuffer out, int treeSize, int leafIndex, List<byte[]> auditProof) {
+        out.putLong(treeSize);
+        out.putLong(leafIndex);
+        writePath(out, auditProof);
+    }
+
+    /**
+     * Encodes an audit proof to a stream.
+     * @param out The stream to write to
+     * @param treeSize The number of leaves in the Verifiable Log that computed the audit proof
+     * @param leafIndex The zero-based index of the leaf for which the audit proof was computed
+     * @param auditProof The audit proof to encode
+     * @throws IOException if writing to the stream fails
+     */
+    public static void writeAuditProof(OutputStream out, int treeSize, int leafIndex, List<byte[]> auditProof) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeLong(treeSize);
+        dataOut.writeLong(leafIndex);
+        writePath(dataOut, auditProof);
+    }
+
+    /**
+     * Decodes an audit proof from a buffer, starting at its current position and advancing it past the proof.
+     * @param in The buffer to read from
+     * @return The decoded audit proof, whose hashes are views of the buffer
+     * @throws IllegalArgumentException if the buffer does not contain a valid encoded audit proof
+     */
+    public static EncodedAuditProof readAuditProof(ByteBuffer in) {
+        try {
+            int treeSize = readSize(in);
+            int leafIndex = readSize(in);
+            return new EncodedAuditProof(treeSize, leafIndex, readPath(in));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated audit proof", e);
+        }
+    }
+
+    /**
+     * Calculates the number of bytes needed to encode a consistency proof.
+     * @param consistencyProof The consistency proof to encode
+     * @return The length of the encoded consistency proof in bytes
+     */
+    public static int encodedConsistencyProofLength(List<byte[]> consistencyProof) {
+        return 8 + 8 + encodedPathLength(consistencyProof);
+    }
+
+    /**
+     * Encodes a consistency proof into a buffer, starting at its current position.
+     * @param out The buffer to write to, which must have at least {@link #encodedConsistencyProofLength(List)} bytes remaining
+     * @param treeSize1 The number of leaves in the smaller Verifiable Log
+     * @param treeSize2 The number of leaves in the larger Verifiable Log
+     * @param consistencyProof The consistency proof to encode
+     */
+    public static void writeConsistencyProof(ByteBuffer out, int treeSize1, int treeSize2, List<byte[]> consistencyProof) {
+        out.putLong(treeSize1);
+        out.putLong(treeSize2);
+        writePath(out, consistencyProof);
+    }
+
+    /**
+     * Encodes a consistency proof to a stream.
+     * @param out The stream to write to
+     * @param treeSize1 The number of leaves in the smaller Verifiable Log
+     * @param treeSize2 The number of leaves in the larger Verifiable Log
+     * @param consistencyProof The consistency proof to encode
+     * @throws IOException if writing to the stream fails
+     */
+    public static void writeConsistencyProof(OutputStream out, int treeSize1, int treeSize2, List<byte[]> consistencyProof) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeLong(treeSize1);
+        dataOut.writeLong(treeSize2);
+        writePath(dataOut, consistencyProof);
+    }
+
+    /**
+     * Decodes a consistency proof from a buffer, starting at its current position and advancing it past the proof.
+     * @param in The buffer to read from
+     * @return The decoded consistency proof, whose hashes are views of the buffer
+     * @throws IllegalArgumentException if the buffer does not contain a valid encoded consistency proof
+     */
+    public static EncodedConsistencyProof readConsistencyProof(ByteBuffer in) {
+        try {
+            int treeSize1 = readSize(in);
+            int treeSize2 = readSize(in);
+            return new EncodedConsistencyProof(treeSize1, treeSize2, readPath(in));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated consistency proof", e);
+        }
+    }
+
+    /**
+     * Calculates the number of bytes needed to encode a tree head.
+     * @param treeHead The tree head to encode
+     * @return The length of the encoded tree head in bytes
+     */
+    public static int encodedTreeHeadLength(TreeHead treeHead) {
+        return 8 + 1 + treeHead.getRootHash().length;
+    }
+
+    /**
+     * Encodes a tree head into a buffer, starting at its current position.
+     * @param out The buffer to write to, which must have at least {@link #encodedTreeHeadLength(TreeHead)} bytes remaining
+     * @param treeHead The tree head to encode
+     */
+    public static void writeTreeHead(ByteBuffer out, TreeHead treeHead) {
+        out.putLong(treeHead.getTreeSize());
+        writeNodeHash(out, treeHead.getRootHash());
+    }
+
+    /**
+     * Encodes a tree head to a stream.
+     * @param out The stream to write to
+     * @param treeHead The tree head to encode
+     * @throws IOException if writing to the stream fails
+     */
+    public static void writeTreeHead(OutputStream out, TreeHead treeHead) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeLong(treeHead.getTreeSize());
+        writeNodeHash(dataOut, treeHead.getRootHash());
+    }
+
+    /**
+     * Decodes a tree head from a buffer, starting at its current position and advancing it past the tree head.
+     * @param in The buffer to read from
+     * @return The decoded tree head
+     * @throws IllegalArgumentException if the buffer does not contain a valid encoded tree head
+     */
+    public static TreeHead readTreeHead(ByteBuffer in) {
+        try {
+            int treeSize = readSize(in);
+            ByteBuffer rootHash = readNodeHash(in);
+            byte[] rootHashBytes = new byte[rootHash.remaining()];
+            rootHash.get(rootHashBytes);
+            return new TreeHead(treeSize, rootHashBytes);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated tree head", e);
+        }
+    }
+
+    private static int encodedPathLength(List<byte[]> path) {
+        int length = 2;
+        for (byte[] nodeHash : path) {
+            length += 1 + nodeHash.length;
+        }
+        return length;
+    }
+
+    private static void writePath(ByteBuffer out, List<byte[]> path) {
+        out.putShort((short) checkPathLength(encodedPathLength(path) - 2));
+        for (byte[] nodeHash : path) {
+            writeNodeHash(out, nodeHash);
+        }
+    }
+
+    private static void writePath(DataOutputStream out, List<byte[]> path) throws IOException {
+        out.writeShort(checkPathLength(encodedPathLength(path) - 2));
+        for (byte[] nodeHash : path) {
+            writeNodeHash(out, nodeHash);
+        }
+    }
+
+    private static void writeNodeHash(ByteBuffer out, byte[] nodeHash) {
+        out.put((byte) checkNodeHashLength(nodeHash.length));
+        out.put(nodeHash);
+    }
+
+    private static void writeNodeHash(DataOutputStream out, byte[] nodeHash) throws IOException {
+        out.writeByte(checkNodeHashLength(nodeHash.length));
+        out.write(nodeHash);
+    }
+
+    private static List<ByteBuffer> readPath(ByteBuffer in) {
+        int pathLength = in.getShort() & 0xFFFF;
+        if (in.remaining() < pathLength) {
+            throw new IllegalArgumentException("truncated path");
+        }
+        ByteBuffer pathBuffer = in.slice();
+        pathBuffer.limit(pathLength);
+        in.position(in.position() + pathLength);
+
+        List<ByteBuffer> path = new ArrayList<>();
+        while (pathBuffer.hasRemaining()) {
+            path.add(readNodeHash(pathBuffer));
+        }
+        return Collections.unmodifiableList(path);
+    }
+
+    private static ByteBuffer readNodeHash(ByteBuffer in) {
+        int nodeHashLength = in.get() & 0xFF;
+        if (nodeHashLength == 0 || in.remaining() < nodeHashLength) {
+            throw new IllegalArgumentException("invalid node hash");
+        }
+        ByteBuffer nodeHash = in.slice();
+        nodeHash.limit(nodeHashLength);
+        in.position(in.position() + nodeHashLength);
+        return nodeHash.asReadOnlyBuffer();
+    }
+
+    private static int readSize(ByteBuffer in) {
+        long size = in.getLong();
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("size out of range: " + size);
+        }
+        return (int) size;
+    }
+
+    private static int checkPathLength(int pathLength) {
+        if (pathLength > 0xFFFF) {
+            throw new IllegalArgumentException("path too long to encode");
+        }
+        return pathLength;
+    }
+
+    private static int checkNodeHashLength(int nodeHashLength) {
+        if (nodeHashLength == 0 || nodeHashLength > 0xFF) {
+            throw new IllegalArgumentException("node hash must be between 1 and 255 bytes long");
+        }
+        return nodeHashLength;
+    }
+
+    /**
+     * A decoded audit proof whose Merkle Tree hashes are views of the buffer it was decoded from.
+     */
+    public static final class EncodedAuditProof {
+        private final int treeSize;
+        private final int leafIndex;
+        private final List<ByteBuffer> auditPath;
+
+        EncodedAuditProof(int treeSize, int leafIndex, List<ByteBuffer> auditPath) {
+            this.treeSize = treeSize;
+            this.leafIndex = leafIndex;
+            this.auditPath = auditPath;
+        }
+
+        /**
+         * Gets the number of leaves in the Verifiable Log that computed the audit proof.
+         * @return The tree size
+         */
+        public int getTreeSize() {
+            return treeSize;
+        }
+
+        /**
+         * Gets the index of the leaf for which the audit proof was computed.
+         * @return The zero-based index of the leaf
+         */
+        public int getLeafIndex() {
+            return leafIndex;
+        }
+
+        /**
+         * Gets the Merkle Tree hashes of the audit proof.
+         * @return Read-only views of the Merkle Tree hashes, in the same order as {@link VerifiableLog#auditProof(int, int)}
+         */
+        public List<ByteBuffer> getAuditPath() {
+            return auditPath;
+        }
+    }
+
+    /**
+     * A decoded consistency proof whose Merkle Tree hashes are views of the buffer it was decoded from.
+     */
+    public static final class EncodedConsistencyProof {
+        private final int treeSize1;
+        private final int treeSize2;
+        private final List<ByteBuffer> consistencyPath;
+
+        EncodedConsistencyProof(int treeSize1, int treeSize2, List<ByteBuffer> consistencyPath) {
+            this.treeSize1 = treeSize1;
+            this.treeSize2 = treeSize2;
+            this.consistencyPath = consistencyPath;
+        }
+
+        /**
+         * Gets the number of leaves in the smaller Verifiable Log.
+         * @return The smaller tree size
+         */
+        public int getTreeSize1() {
+            return treeSize1;
+        }
+
+        /**
+         * Gets the number of leaves in the larger Verifiable Log.
+         * @return The larger tree size
+         */
+        public int getTreeSize2() {
+            return treeSize2;
+        }
+
+        /**
+         * Gets the Merkle Tree hashes of the consistency proof.
+         * @return Read-only views of the Merkle Tree hashes, in the same order as {@link VerifiableLog#consistencyProof(int, int)}
+         */
+        public List<ByteBuffer> getConsistencyPath() {
+            return consistencyPath;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gov.verifiablelog;
+
+import uk.gov.verifiablelog.store.memoization.MemoizationStore;
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.util.Collections;
+
+/**
+ * Estimates how expensive a request to a {@link VerifiableLog} would be before it is run, as the number of leaves it
+ * would read and hash, by looking up in its {@link MemoizationStore} which of the subtrees it needs are known.
+ *
+ * Subtrees are looked up a level at a time, as the {@link VerifiableLog} does, and only the children of subtrees
+ * that are not known are looked up. The lookups stop after a fixed number of subtrees, and each subtree not yet
+ * looked into then counts as all of its leaves, so an estimate is never less than the real cost.
+ */
+public class ProofCostEstimator {
+
+    /**
+     * The default maximum number of subtrees looked up for one estimate.
+     */
+    public static final int DEFAULT_MAX_LOOKUPS = SubtreePlan.DEFAULT_MAX_LOOKUPS;
+
+    private final VerifiableLog verifiableLog;
+    private final int maxLookups;
+
+    /**
+     * Creates a new instance of a {@link ProofCostEstimator} object with the default maximum number of lookups.
+     * @param verifiableLog The {@link VerifiableLog} whose requests are estimated
+     */
+    public ProofCostEstimator(VerifiableLog verifiableLog) {
+        this(verifiableLog, DEFAULT_MAX_LOOKUPS);
+    }
+
+    /**
+     * Creates a new instance of a {@link ProofCostEstimator} object.
+     * @param verifiableLog The {@link VerifiableLog} whose requests are estimated
+     * @param maxLookups The maximum number of subtrees looked up for one estimate
+     */
+    public ProofCostEstimator(VerifiableLog verifiableLog, int maxLookups) {
+        if (maxLookups < 0) {
+            throw new IllegalArgumentException("maxLookups must not be negative");
+        }
+        this.verifiableLog = verifiableLog;
+        this.maxLookups = maxLookups;
+    }
+
+    /**
+     * Estimates the cost of {@link VerifiableLog#getSpecificRootHash(int)}.
+     * @param treeSize The number of leaves in the Verifiable Log which should be included in the root hash
+     * @return The estimated number of leaves read, which is never less than the real number
+     */
+    public long rootHashCost(int treeSize) {
+        return rootHashPlan(treeSize).getLeafCost();
+    }
+
+    /**
+     * Estimates the cost of {@link VerifiableLog#auditProof(int, int)}.
+     * @param leafIndex The zero-based index of the leaf for which the audit proof is required
+     * @param treeSize The number of leaves in the Verifiable Log for which the audit proof is required
+     * @return The estimated number of leaves read, which is never less than the real number
+     */
+    public long auditProofCost(int leafIndex, int treeSize) {
+        return auditProofPlan(leafIndex, treeSize).getLeafCost();
+    }
+
+    /**
+     * Estimates the cost of {@link VerifiableLog#consistencyProof(int, int)}.
+     * @param treeSize1 The number of leaves in the smaller Verifiable Log
+     * @param treeSize2 The number of leaves in the larger Verifiable Log
+     * @return The estimated number of leaves read, which is never less than the real number
+     */
+    public long consistencyProofCost(int treeSize1, int treeSize2) {
+        return consistencyProofPlan(treeSize1, treeSize2).getLeafCost();
+    }
+
+    // the plans behind the estimates, which the log can compute the requests from without looking the subtrees up again
+    SubtreePlan rootHashPlan(int treeSize) {
+        return verifiableLog.plan(Collections.singletonList(new Subtree(0, treeSize)), maxLookups);
+    }
+
+    SubtreePlan auditProofPlan(int leafIndex, int treeSize) {
+        return verifiableLog.plan(Util.auditPathSubtrees(leafIndex, treeSize), maxLookups);
+    }
+
+    SubtreePlan consistencyProofPlan(int treeSize1, int treeSize2) {
+        if (treeSize1 <= 0) {
+            throw new IllegalArgumentException("treeSize1 must be strictly positive");
+        }
+        return verifiableLog.plan(Util.consistencyProofSubtrees(treeSize1, treeSize2), maxLookups);
+    }
+}
@@ -0,0 +1,129 @@
+package uk.gov.verifiablelog;
+
+import uk.gov.verifiablelog.store.memoization.DoNothing;
+import uk.gov.verifiablelog.store.memoization.MemoizationStore;
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The subtrees needed to compute the root hashes of some disjoint subtrees, found by looking them up in a
+ * {@link MemoizationStore} before any hash is computed.
+ *
+ * The subtrees are looked up a level at a time with {@link MemoizationStore#getAll(java.util.Collection)}, and only
+ * the children of subtrees that are not known are looked up, as computing their hashes would. The lookups stop
+ * after a maximum number of subtrees, leaving the subtrees not yet looked into to be looked up as they are computed.
+ */
+final class SubtreePlan {
+
+    /**
+     * The default maximum number of subtrees looked up for one plan.
+     */
+    static final int DEFAULT_MAX_LOOKUPS = 1 << 12;
+
+    private final Map<Subtree, byte[]> known;
+    private final Set<Subtree> lookedUp;
+    private final List<Subtree> unknown;
+
+    private SubtreePlan(Map<Subtree, byte[]> known, Set<Subtree> lookedUp, List<Subtree> unknown) {
+        this.known = known;
+        this.lookedUp = lookedUp;
+        this.unknown = unknown;
+    }
+
+    /**
+     * Looks up the subtrees needed to compute the root hashes of some disjoint subtrees.
+     * @param memoizationStore The store to look the subtrees up in
+     * @param subtrees The disjoint subtrees whose root hashes are required
+     * @param maxLookups The maximum number of subtrees to look up
+     * @return The plan
+     */
+    static SubtreePlan of(MemoizationStore memoizationStore, List<Subtree> subtrees, int maxLookups) {
+        Map<Subtree, byte[]> known = new HashMap<>();
+        Set<Subtree> lookedUp = new HashSet<>();
+        List<Subtree> unknown = new ArrayList<>();
+        List<Subtree> level = subtrees;
+        while (!level.isEmpty()) {
+            if (memoizationStore instanceof DoNothing || lookedUp.size() + level.size() > maxLookups) {
+                unknown.addAll(level);
+                break;
+            }
+            Map<Subtree, byte[]> found = memoizationStore.getAll(level);
+            known.putAll(found);
+            lookedUp.addAll(level);
+            // only the subtrees not known are computed, from their children
+            List<Subtree> nextLevel = new ArrayList<>();
+            for (Subtree subtree : level) {
+                int size = subtree.getSize();
+                if (found.containsKey(subtree)) {
+                    continue;
+                }
+                if (size <= 1) {
+                    unknown.add(subtree);
+                } else {
+                    int k = Util.k(size);
+                    nextLevel.add(new Subtree(subtree.getStart(), k));
+                    nextLevel.add(new Subtree(subtree.getStart() + k, size - k));
+                }
+            }
+            level = nextLevel;
+        }
+        return new SubtreePlan(known, lookedUp, unknown);
+    }
+
+    /**
+     * Gets the disjoint subtrees whose leaves may have to be read: the leaves not known, and the subtrees not
+     * looked into.
+     * @return The subtrees, from which leaves are read
+     */
+    List<Subtree> getUnknown() {
+        return Collections.unmodifiableList(unknown);
+    }
+
+    /**
+     * Gets the number of leaves that may have to be read, which is never less than the number that are.
+     * @return The number of leaves in the unknown subtrees
+     */
+    long getLeafCost() {
+        long leafCost = 0;
+        for (Subtree subtree : unknown) {
+            leafCost += subtree.getSize();
+        }
+        return leafCost;
+    }
+
+    /**
+     * Creates a {@link MemoizationStore} that answers from the plan for the subtrees looked up, and passes every
+     * other lookup, and every put, to an underlying store.
+     * @param memoizationStore The store the plan was made from
+     * @return The {@link MemoizationStore}
+     */
+    MemoizationStore over(MemoizationStore memoizationStore) {
+        return new PlannedMemoizationStore(memoizationStore);
+    }
+
+    private class PlannedMemoizationStore implements MemoizationStore {
+        private final MemoizationStore memoizationStore;
+
+        PlannedMemoizationStore(MemoizationStore memoizationStore) {
+            this.memoizationStore = memoizationStore;
+        }
+
+        @Override
+        public void put(Integer start, Integer size, byte[] value) {
+            memoizationStore.put(start, size, value);
+        }
+
+        @Override
+        public byte[] get(Integer start, Integer size) {
+            Subtree subtree = new Subtree(start, size);
+            return lookedUp.contains(subtree) ? known.get(subtree) : memoizationStore.get(start, size);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package uk.gov.verifiablelog;
+
+/**
+ * The size and Merkle Tree root hash of a Verifiable Log at a point in its history.
+ */
+public final class TreeHead {
+
+    private final int treeSize;
+    private final byte[] rootHash;
+
+    /**
+     * Creates a new instance of a {@link TreeHead} object.
+     * @param treeSize The number of leaves in the Verifiable Log
+     * @param rootHash The Merkle Tree root hash of the Verifiable Log at that tree size
+     */
+    public TreeHead(int treeSize, byte[] rootHash) {
+        this.treeSize = treeSize;
+        this.rootHash = rootHash;
+    }
+
+    /**
+     * Gets the number of leaves in the Verifiable Log.
+     * @return The tree size
+     */
+    public int getTreeSize() {
+        return treeSize;
+    }
+
+    /**
+     * Gets the Merkle Tree root hash of the Verifiable Log at the tree size.
+     * @return The Merkle Tree root hash
+     */
+    public byte[] getRootHash() {
+        return rootHash;
+    }
+}
@@ -0,0 +1,244 @@
+package uk.gov.verifiablelog;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the tree heads of a {@link VerifiableLog} to subscribers as the log grows.
+ *
+ * The root hash is computed once per growth of the log, however many subscribers there are, instead of once per
+ * poll of {@link VerifiableLog#getCurrentRootHash()}. Tree heads are coalesced per subscriber: a subscriber that has
+ * not requested more is only ever sent the latest tree head once it does, never a backlog of stale ones.
+ *
+ * The {@link Subscriber} and {@link Subscription} interfaces follow the contract of
+ * {@code java.util.concurrent.Flow} (Reactive Streams), which is not available on Java 8.
+ */
+public class TreeHeadPublisher implements AutoCloseable {
+
+    /**
+     * Receives tree heads from a {@link TreeHeadPublisher}, following the contract of
+     * {@code java.util.concurrent.Flow.Subscriber}.
+     */
+    public interface Subscriber {
+        /**
+         * Called once, before any other method, with the subscription to request tree heads from.
+         * @param subscription The new subscription
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the latest tree head, at most as many times as have been requested.
+         * @param treeHead The latest tree head of the Verifiable Log
+         */
+        void onNext(TreeHead treeHead);
+
+        /**
+         * Called when the subscription fails; no further methods are called.
+         * @param throwable The cause of the failure
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when the publisher is closed; no further methods are called.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Links a {@link Subscriber} to a {@link TreeHeadPublisher}, following the contract of
+     * {@code java.util.concurrent.Flow.Subscription}.
+     */
+    public interface Subscription {
+        /**
+         * Requests up to a further {@code n} tree heads.
+         * @param n The number of additional tree heads to allow, which must be positive
+         */
+        void request(long n);
+
+        /**
+         * Stops the subscriber from receiving any further tree heads.
+         */
+        void cancel();
+    }
+
+    private final VerifiableLog verifiableLog;
+    private final Executor executor;
+    private final CopyOnWriteArrayList<TreeHeadSubscription> subscriptions;
+    private volatile TreeHead latestTreeHead;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new instance of a {@link TreeHeadPublisher} object.
+     * @param verifiableLog The {@link VerifiableLog} whose tree heads are published
+     * @param executor The executor that subscribers are called on
+     */
+    public TreeHeadPublisher(VerifiableLog verifiableLog, Executor executor) {
+        this.verifiableLog = verifiableLog;
+        this.executor = executor;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Adds a subscriber. Once it requests tree heads, it is sent the latest one published, if any, followed by
+     * those of any later growth of the log.
+     * @param subscriber The subscriber to add
+     */
+    public void subscribe(Subscriber subscriber) {
+        TreeHeadSubscription subscription = new TreeHeadSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        // synchronized with refresh so that an older tree head can never be offered after a newer one
+        synchronized (this) {
+            subscriptions.add(subscription);
+            if (closed) {
+                subscription.complete();
+            } else if (latestTreeHead != null) {
+                subscription.offer(latestTreeHead);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the log has grown since the last tree head was published, and if so computes the new root
+     * hash and offers the new tree head to all subscribers.
+     * @return The latest tree head, or null if the log is empty and nothing has been published yet
+     */
+    public synchronized TreeHead refresh() {
+        if (closed) {
+            return latestTreeHead;
+        }
+        VerifiableLogSnapshot snapshot = verifiableLog.snapshot();
+        TreeHead previous = latestTreeHead;
+        if (snapshot.getTreeSize() == 0 || (previous != null && snapshot.getTreeSize() <= previous.getTreeSize())) {
+            return previous;
+        }
+        TreeHead treeHead = snapshot.getTreeHead();
+        latestTreeHead = treeHead;
+        for (TreeHeadSubscription subscription : subscriptions) {
+            subscription.offer(treeHead);
+        }
+        return treeHead;
+    }
+
+    /**
+     * Calls {@link #refresh()} periodically, so that one task polls the log on behalf of all subscribers.
+     * @param scheduler The scheduler to poll on
+     * @param period The time between polls
+     * @param unit The unit of the period
+     * @return The scheduled polling task, which can be cancelled to stop polling
+     */
+    public ScheduledFuture<?> refreshEvery(ScheduledExecutorService scheduler, long period, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(this::refresh, 0, period, unit);
+    }
+
+    /**
+     * Gets the latest tree head published, without checking whether the log has grown.
+     * @return The latest tree head, or null if nothing has been published yet
+     */
+    public TreeHead getLatestTreeHead() {
+        return latestTreeHead;
+    }
+
+    /**
+     * Stops publishing tree heads and completes all subscriptions, after sending any pending tree head that a
+     * subscriber has requested.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (TreeHeadSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    private class TreeHeadSubscription implements Subscription {
+        private final Subscriber subscriber;
+        private final AtomicReference<TreeHead> pending = new AtomicReference<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean completed;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        TreeHeadSubscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("request must be positive, but was " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void offer(TreeHead treeHead) {
+            // a newer tree head replaces one the subscriber has not yet been sent
+            pending.set(treeHead);
+            drain();
+        }
+
+        void complete() {
+            completed = true;
+            drain();
+        }
+
+        // only one drain runs at a time, so the subscriber is never called concurrently
+        private void drain() {
+            if (work.getAndIncrement() == 0) {
+                executor.execute(this::runDrain);
+            }
+        }
+
+        private void runDrain() {
+            int missed = 1;
+            while (true) {
+                if (!cancelled) {
+                    if (error != null) {
+                        terminate(() -> subscriber.onError(error));
+                    } else if (demand.get() > 0) {
+                        TreeHead treeHead = pending.getAndSet(null);
+                        if (treeHead != null) {
+                            demand.getAndUpdate(current -> current == Long.MAX_VALUE ? current : current - 1);
+                            try {
+                                subscriber.onNext(treeHead);
+                            } catch (Throwable t) {
+                                // a subscriber that throws is cancelled, and told why
+                                terminate(() -> subscriber.onError(t));
+                            }
+                        }
+                    }
+                    if (!cancelled && completed && (pending.get() == null || demand.get() == 0)) {
+                        terminate(subscriber::onComplete);
+                    }
+                }
+                missed = work.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void terminate(Runnable signal) {
+            cancel();
+            try {
+                signal.run();
+            } catch (Throwable ignored) {
+                // nothing more can be sent to a subscriber that throws from onError or onComplete
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package uk.gov.verifiablelog;
+
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verifies many audit proofs against a single trusted tree head of a Verifiable Log.
+ *
+ * Every Merkle Tree node that has been authenticated by an earlier audit proof is remembered. While verifying a
+ * later audit proof, hashing stops as soon as a computed node matches a remembered one, so audit proofs for leaves
+ * close to already verified leaves need only a few hash operations.
+ */
+public class TrustedTreeHeadVerifier {
+
+    private final int treeSize;
+    private final Map<Subtree, byte[]> trustedNodes;
+    private final ThreadLocal<MessageDigest> messageDigest;
+
+    /**
+     * Creates a new instance of a {@link TrustedTreeHeadVerifier} object.
+     * @param treeHead The trusted tree head that audit proofs are verified against
+     */
+    public TrustedTreeHeadVerifier(TreeHead treeHead) {
+        this.treeSize = treeHead.getTreeSize();
+        this.trustedNodes = new ConcurrentHashMap<>();
+        this.trustedNodes.put(new Subtree(0, treeSize), treeHead.getRootHash());
+        this.messageDigest = Util.threadLocalDigest(Util.sha256Instance());
+    }
+
+    /**
+     * Verifies a piece of leaf data against an audit proof for the trusted tree head.
+     * @param leafIndex The zero-based index of the leaf for which the audit proof was computed
+     * @param auditProof The audit proof to verify against
+     * @param leafData The raw leaf data to verify
+     * @return true if the leaf data can be verified against the audit proof, otherwise false
+     */
+    public boolean isValidAuditProof(int leafIndex, List<byte[]> auditProof, byte[] leafData) {
+        if (leafIndex < 0 || treeSize <= leafIndex) {
+            return false;
+        }
+        List<Subtree> siblings = Util.auditPathSubtrees(leafIndex, treeSize);
+        if (siblings.size() != auditProof.size()) {
+            return false;
+        }
+
+        MessageDigest digest = messageDigest.get();
+        List<Subtree> computedNodes = new ArrayList<>();
+        List<byte[]> computedHashes = new ArrayList<>();
+        Subtree node = new Subtree(leafIndex, 1);
+        byte[] hash = Util.leafHash(leafData, digest);
+        for (int i = 0; ; i++) {
+            byte[] trustedHash = trustedNodes.get(node);
+            if (trustedHash != null) {
+                if (!Arrays.equals(trustedHash, hash)) {
+                    return false;
+                }
+                trust(computedNodes, computedHashes, siblings.subList(0, i), auditProof.subList(0, i));
+                return true;
+            }
+            if (i == siblings.size()) {
+                // the root is always trusted, so this is only reached if the audit proof is for another tree
+                return false;
+            }
+
+            computedNodes.add(node);
+            computedHashes.add(hash);
+            Subtree sibling = siblings.get(i);
+            if (sibling.getStart() < node.getStart()) {
+                hash = Util.branchHash(auditProof.get(i), hash, digest);
+                node = new Subtree(sibling.getStart(), sibling.getSize() + node.getSize());
+            } else {
+                hash = Util.branchHash(hash, auditProof.get(i), digest);
+                node = new Subtree(node.getStart(), node.getSize() + sibling.getSize());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of Merkle Tree nodes that have been authenticated so far, including the root.
+     * @return The number of trusted nodes
+     */
+    public int trustedNodeCount() {
+        return trustedNodes.size();
+    }
+
+    // both children of an authenticated node are authenticated too, so the whole verified path can be trusted
+    private void trust(List<Subtree> nodes, List<byte[]> hashes, List<Subtree> siblings, List<byte[]> siblingHashes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            trustedNodes.putIfAbsent(nodes.get(i), hashes.get(i));
+            trustedNodes.putIfAbsent(siblings.get(i), siblingHashes.get(i));
+        }
+    }
+}
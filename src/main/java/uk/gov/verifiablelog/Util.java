@@ -1,7 +1,13 @@
 package uk.gov.verifiablelog;
 
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A utility class that provides commonly used operations when working with Merkle Trees.
@@ -27,6 +33,61 @@ class Util {
         return split >> 1;
     }
 
+    /**
+     * Calculates which subtrees make up the audit proof for a leaf, without computing any hashes.
+     * @param leafIndex The zero-based index of the leaf
+     * @param treeSize The number of leaves in the Merkle Tree
+     * @return The subtrees whose root hashes form the audit proof, in the same order as the audit proof
+     */
+    protected static List<Subtree> auditPathSubtrees(int leafIndex, int treeSize) {
+        List<Subtree> subtrees = new ArrayList<>();
+        int start = 0;
+        int size = treeSize;
+        while (size > 1) {
+            int k = k(size);
+            if (leafIndex - start < k) {
+                subtrees.add(new Subtree(start + k, size - k));
+                size = k;
+            } else {
+                subtrees.add(new Subtree(start, k));
+                start += k;
+                size -= k;
+            }
+        }
+        // the audit proof is ordered from the leaf upwards
+        Collections.reverse(subtrees);
+        return subtrees;
+    }
+
+    /**
+     * Calculates which subtrees make up the consistency proof between two tree sizes, without computing any hashes.
+     * @param treeSize1 The number of leaves in the smaller Merkle Tree, which must be strictly positive
+     * @param treeSize2 The number of leaves in the larger Merkle Tree
+     * @return The subtrees whose root hashes form the consistency proof, in the same order as the consistency proof
+     */
+    protected static List<Subtree> consistencyProofSubtrees(int treeSize1, int treeSize2) {
+        List<Subtree> subtrees = new ArrayList<>();
+        subtreeConsistencyProofSubtrees(treeSize1, treeSize2, 0, true, subtrees);
+        return subtrees;
+    }
+
+    private static void subtreeConsistencyProofSubtrees(int low, int high, int start, boolean startFromOldRoot, List<Subtree> subtrees) {
+        if (low == high) {
+            if (!startFromOldRoot) {
+                subtrees.add(new Subtree(start, high));
+            }
+            return;
+        }
+        int k = k(high);
+        if (low <= k) {
+            subtreeConsistencyProofSubtrees(low, k, start, startFromOldRoot, subtrees);
+            subtrees.add(new Subtree(start + k, high - k));
+        } else {
+            subtreeConsistencyProofSubtrees(low - k, high - k, start + k, false, subtrees);
+            subtrees.add(new Subtree(start, k));
+        }
+    }
+
     /**
      * Calculates the combined Merkle Tree hash of two child Merkle Tree nodes.
      * @param left The value of the left-hand Merkle Tree node
@@ -41,6 +102,21 @@ class Util {
         return digest.digest();
     }
 
+    /**
+     * Calculates the combined Merkle Tree hash of two child Merkle Tree nodes held in buffers, without copying them.
+     * The positions of the buffers are not changed.
+     * @param left The value of the left-hand Merkle Tree node, from its position to its limit
+     * @param right The value of the right-hand Merkle Tree node, from its position to its limit
+     * @param digest The algorithm to use when creating hash values of Merkle Tree nodes
+     * @return A Merkle Tree hash
+     */
+    protected static byte[] branchHash(ByteBuffer left, ByteBuffer right, MessageDigest digest) {
+        digest.update((byte) 0x01);
+        digest.update(left.duplicate());
+        digest.update(right.duplicate());
+        return digest.digest();
+    }
+
     /**
      * Calculates the Merkle Tree hash from the raw data of a single leaf.
      * @param leafData The raw value of the leaf data
@@ -53,6 +129,39 @@ class Util {
         return digest.digest();
     }
 
+    /**
+     * Calculates the Merkle Tree hash from the raw data of a single leaf held in a buffer, without copying it.
+     * The position of the buffer is not changed.
+     * @param leafData The raw value of the leaf data, from its position to its limit
+     * @param digest The algorithm to use when creating a hash value of the leaf data
+     * @return A merkle tree hash
+     */
+    protected static byte[] leafHash(ByteBuffer leafData, MessageDigest digest) {
+        digest.update((byte) 0x00);
+        digest.update(leafData.duplicate());
+        return digest.digest();
+    }
+
+    /**
+     * Provides each thread with its own copy of a message digest, as {@link MessageDigest} instances are not
+     * safe for use by multiple threads at once.
+     * @param prototype The message digest to copy, which is never used directly
+     * @return A per-thread supplier of message digests for the same algorithm
+     */
+    protected static ThreadLocal<MessageDigest> threadLocalDigest(MessageDigest prototype) {
+        return ThreadLocal.withInitial(() -> {
+            try {
+                return (MessageDigest) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                try {
+                    return MessageDigest.getInstance(prototype.getAlgorithm(), prototype.getProvider());
+                } catch (NoSuchAlgorithmException e1) {
+                    throw new RuntimeException("can't happen", e1);
+                }
+            }
+        });
+    }
+
     /**
      * An instance of the sha-256 algorithm for message digest.
      * @return A new sha-256 message digest
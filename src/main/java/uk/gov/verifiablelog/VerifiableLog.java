@@ -1,21 +1,37 @@
 package uk.gov.verifiablelog;
 
 import uk.gov.verifiablelog.store.memoization.DoNothing;
+import uk.gov.verifiablelog.store.memoization.InMemory;
 import uk.gov.verifiablelog.store.memoization.MemoizationStore;
 import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.Subtree;
 
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
 
 /**
  * An implementation of a Verifiable Log.
+ *
+ * A {@link VerifiableLog} can be used by many threads at once, as long as its {@link MerkleLeafStore} and
+ * {@link MemoizationStore} can be. Use {@link #snapshot()} to get results that are consistent with each other
+ * while leaves are being appended.
  * @see <a href="https://tools.ietf.org/html/rfc6962">RFC 6962</a>
  */
 public class VerifiableLog {
 
-    private final MessageDigest messageDigest;
+    // subtrees smaller than this are cheaper to compute twice than to coordinate between threads
+    private static final int SINGLE_FLIGHT_MIN_SIZE = 64;
+
+    private final ThreadLocal<MessageDigest> messageDigest;
     private final MerkleLeafStore merkleLeafStore;
     private final MemoizationStore memoizationStore;
+    private final LeafHashIndex leafHashIndex;
+    private final ConcurrentMap<Subtree, CompletableFuture<byte[]>> inFlight;
 
     /**
      * Creates a new instance of a {@link VerifiableLog} object that does not memoize Merkle Tree root hashes of
@@ -35,9 +51,15 @@ public class VerifiableLog {
      * @param memoizationStore The {@link MemoizationStore} to use when memoizing intermediate subtree root hashes
      */
     public VerifiableLog(MessageDigest messageDigest, MerkleLeafStore merkleLeafStore, MemoizationStore memoizationStore) {
+        this(Util.threadLocalDigest(messageDigest), merkleLeafStore, memoizationStore == null ? new DoNothing(): memoizationStore, new LeafHashIndex(), new ConcurrentHashMap<>());
+    }
+
+    private VerifiableLog(ThreadLocal<MessageDigest> messageDigest, MerkleLeafStore merkleLeafStore, MemoizationStore memoizationStore, LeafHashIndex leafHashIndex, ConcurrentMap<Subtree, CompletableFuture<byte[]>> inFlight) {
         this.messageDigest = messageDigest;
         this.merkleLeafStore = merkleLeafStore;
-        this.memoizationStore = memoizationStore == null ? new DoNothing(): memoizationStore;
+        this.memoizationStore = memoizationStore;
+        this.leafHashIndex = leafHashIndex;
+        this.inFlight = inFlight;
     }
 
     /**
@@ -45,7 +67,29 @@ public class VerifiableLog {
      * @return The Merkle Tree root hash
      */
     public byte[] getCurrentRootHash() {
-        return subtreeHash(0, merkleLeafStore.totalLeaves());
+        return getSpecificRootHash(merkleLeafStore.totalLeaves());
+    }
+
+    /**
+     * Creates an immutable snapshot of the Verifiable Log pinned to its current tree size. The snapshot shares the
+     * {@link MemoizationStore} of this Verifiable Log, and leaves appended after the snapshot was taken never affect
+     * its results.
+     * @return A {@link VerifiableLogSnapshot} of the current tree size
+     */
+    public VerifiableLogSnapshot snapshot() {
+        return snapshot(merkleLeafStore.totalLeaves());
+    }
+
+    /**
+     * Creates an immutable snapshot of the Verifiable Log pinned to a specific tree size.
+     * @param treeSize The number of leaves in the Verifiable Log that the snapshot is pinned to
+     * @return A {@link VerifiableLogSnapshot} of the specified tree size
+     */
+    public VerifiableLogSnapshot snapshot(int treeSize) {
+        if (treeSize < 0 || merkleLeafStore.totalLeaves() < treeSize) {
+            throw new IllegalArgumentException("treeSize must be between 0 and the current number of leaves");
+        }
+        return new VerifiableLogSnapshot(this, treeSize);
     }
 
     /**
@@ -54,7 +98,28 @@ public class VerifiableLog {
      * @return The Merkle Tree root hash
      */
     public byte[] getSpecificRootHash(int treeSize) {
-        return subtreeHash(0, treeSize);
+        return getSpecificRootHash(treeSize, plan(Collections.singletonList(new Subtree(0, treeSize)), SubtreePlan.DEFAULT_MAX_LOOKUPS));
+    }
+
+    // the root hash, using a plan of the whole tree already made from the memoization store
+    byte[] getSpecificRootHash(int treeSize, SubtreePlan plan) {
+        return withPlan(plan).subtreeHash(0, treeSize);
+    }
+
+    /**
+     * Gets the specific root hashes of the Verifiable Log for each of the given tree sizes. Subtrees shared between
+     * the tree sizes are only computed once, so the cost grows with the largest tree size rather than with the sum
+     * of the tree sizes.
+     * @param treeSizes The numbers of leaves in the Verifiable Log which should be included in each root hash
+     * @return The Merkle Tree root hashes, in the same order as the given tree sizes
+     */
+    public List<byte[]> getSpecificRootHashes(List<Integer> treeSizes) {
+        VerifiableLog batch = withFrontierCache(treeSizes);
+        List<byte[]> rootHashes = new ArrayList<>();
+        for (int treeSize : treeSizes) {
+            rootHashes.add(batch.getSpecificRootHash(treeSize));
+        }
+        return rootHashes;
     }
 
     /**
@@ -64,7 +129,67 @@ public class VerifiableLog {
      * @return The ordered list of Merkle Tree hashes that provide the audit proof for the specified leaf
      */
     public List<byte[]> auditProof(int leafIndex, int treeSize) {
-        return subtreeAuditProof(leafIndex, 0, treeSize);
+        return auditProof(leafIndex, treeSize, plan(Util.auditPathSubtrees(leafIndex, treeSize), SubtreePlan.DEFAULT_MAX_LOOKUPS));
+    }
+
+    // the audit proof, using a plan of its subtrees already made from the memoization store
+    List<byte[]> auditProof(int leafIndex, int treeSize, SubtreePlan plan) {
+        return withPlan(plan).subtreeAuditProof(leafIndex, 0, treeSize);
+    }
+
+    /**
+     * The audit proof for the leaf with a specified leaf hash in a Verifiable Log, as used by RFC 6962 clients
+     * that do not know the index of their leaf.
+     * @param leafHash The Merkle Tree leaf hash of the leaf for which the audit proof is required
+     * @param treeSize The number of leaves in the Verifiable Log for which the audit proof is required
+     * @return The ordered list of Merkle Tree hashes that provide the audit proof for the specified leaf
+     * @throws IllegalArgumentException if no leaf with the given leaf hash exists in the tree of the given size, or
+     *                                  if the tree size is negative or more than the current number of leaves
+     */
+    public List<byte[]> auditProofByLeafHash(byte[] leafHash, int treeSize) {
+        int leafIndex = leafIndexOf(leafHash, treeSize);
+        if (leafIndex < 0) {
+            throw new IllegalArgumentException("no leaf with the given leaf hash exists in a tree of size " + treeSize);
+        }
+        return auditProof(leafIndex, treeSize);
+    }
+
+    /**
+     * Finds the index of the first leaf with the specified leaf hash. Leaves are added to an in-memory leaf hash
+     * index as the Verifiable Log grows, so each leaf is only read and hashed once across all lookups, and lookups
+     * within a tree size already indexed do not wait for newer leaves to be added.
+     * @param leafHash The Merkle Tree leaf hash of the leaf to find
+     * @param treeSize The number of leaves in the Verifiable Log to search
+     * @return The zero-based index of the first leaf with the given leaf hash, or -1 if there is no such leaf
+     * @throws IllegalArgumentException if the tree size is negative or more than the current number of leaves
+     */
+    public int leafIndexOf(byte[] leafHash, int treeSize) {
+        if (treeSize < 0 || merkleLeafStore.totalLeaves() < treeSize) {
+            throw new IllegalArgumentException("treeSize must be between 0 and the current number of leaves");
+        }
+        if (leafHash.length != digestLength()) {
+            return -1;
+        }
+        leafHashIndex.catchUp(treeSize, this::leafHash);
+        return leafHashIndex.indexOf(leafHash, candidate -> candidate < treeSize && Arrays.equals(leafHash(candidate), leafHash));
+    }
+
+    /**
+     * The range proof for a contiguous range of leaves of a Verifiable Log. The proof consists of the Merkle Tree
+     * hashes of the subtrees to the left and to the right of the range that are needed, together with the leaves in
+     * the range, to compute the root hash.
+     * @param begin The zero-based index of the first leaf in the range (inclusive)
+     * @param end The zero-based index of the last leaf in the range (exclusive)
+     * @param treeSize The number of leaves in the Verifiable Log for which the range proof is required
+     * @return The list of Merkle Tree hashes, ordered from left to right, that provide the range proof
+     */
+    public List<byte[]> rangeProof(int begin, int end, int treeSize) {
+        if (begin < 0 || end <= begin || treeSize < end) {
+            throw new IllegalArgumentException("range must satisfy 0 <= begin < end <= treeSize");
+        }
+        List<byte[]> rangeProof = new ArrayList<>();
+        subtreeRangeProof(begin, end, 0, treeSize, rangeProof);
+        return rangeProof;
     }
 
     /**
@@ -78,7 +203,125 @@ public class VerifiableLog {
             // RFC 6962 §2.1.2 assumes `0 < m < n`; we assume `0 < m <= n`
             throw new IllegalArgumentException("treeSize1 must be strictly positive");
         }
-        return subtreeConsistencyProof(treeSize1, treeSize2, 0, true);
+        return consistencyProof(treeSize1, treeSize2, plan(Util.consistencyProofSubtrees(treeSize1, treeSize2), SubtreePlan.DEFAULT_MAX_LOOKUPS));
+    }
+
+    // the consistency proof, using a plan of its subtrees already made from the memoization store
+    List<byte[]> consistencyProof(int treeSize1, int treeSize2, SubtreePlan plan) {
+        if (treeSize1 <= 0) {
+            throw new IllegalArgumentException("treeSize1 must be strictly positive");
+        }
+        return withPlan(plan).subtreeConsistencyProof(treeSize1, treeSize2, 0, true);
+    }
+
+    /**
+     * The consistency proofs of a Verifiable Log between each consecutive pair of a chain of tree sizes. Subtrees
+     * shared between the proofs are only computed once.
+     * @param treeSizes The chain of tree sizes, which must be strictly positive and in non-decreasing order
+     * @return The consistency proofs from each tree size to the next, i.e. one fewer than the number of tree sizes
+     */
+    public List<List<byte[]>> consistencyProofs(List<Integer> treeSizes) {
+        for (int i = 1; i < treeSizes.size(); i++) {
+            if (treeSizes.get(i - 1) > treeSizes.get(i)) {
+                throw new IllegalArgumentException("treeSizes must be in non-decreasing order");
+            }
+        }
+        VerifiableLog batch = withFrontierCache(treeSizes);
+        List<List<byte[]>> consistencyProofs = new ArrayList<>();
+        for (int i = 1; i < treeSizes.size(); i++) {
+            consistencyProofs.add(batch.consistencyProof(treeSizes.get(i - 1), treeSizes.get(i)));
+        }
+        return consistencyProofs;
+    }
+
+    /**
+     * The current tree head of a Verifiable Log together with an audit proof for a leaf and a consistency proof from
+     * a previous tree size, as typically requested together by a client.
+     * @param leafIndex The zero-based index of the leaf for which the audit proof is required
+     * @param previousTreeSize The number of leaves in the Verifiable Log when the client last saw it
+     * @return The {@link ProofBundle} for the current tree size
+     */
+    public ProofBundle proofBundle(int leafIndex, int previousTreeSize) {
+        return proofBundle(leafIndex, previousTreeSize, merkleLeafStore.totalLeaves());
+    }
+
+    /**
+     * The tree head of a Verifiable Log at a specific tree size together with an audit proof for a leaf and a
+     * consistency proof from a previous tree size. The subtrees needed by the two proofs are retained while the root
+     * hash is computed, so the three results are produced by a single traversal of the tree.
+     * @param leafIndex The zero-based index of the leaf for which the audit proof is required
+     * @param previousTreeSize The number of leaves in the Verifiable Log when the client last saw it
+     * @param treeSize The number of leaves in the Verifiable Log for which the proofs are required
+     * @return The {@link ProofBundle} for the specified tree size
+     */
+    public ProofBundle proofBundle(int leafIndex, int previousTreeSize, int treeSize) {
+        if (previousTreeSize <= 0 || treeSize < previousTreeSize) {
+            throw new IllegalArgumentException("previousTreeSize must satisfy 0 < previousTreeSize <= treeSize");
+        }
+        List<Subtree> auditProofSubtrees = Util.auditPathSubtrees(leafIndex, treeSize);
+        List<Subtree> consistencyProofSubtrees = Util.consistencyProofSubtrees(previousTreeSize, treeSize);
+        Set<Subtree> retained = new HashSet<>(auditProofSubtrees);
+        retained.addAll(consistencyProofSubtrees);
+
+        VerifiableLog bundle = withRetainingCache(retained::contains);
+        byte[] rootHash = bundle.getSpecificRootHash(treeSize);
+        return new ProofBundle(
+                new TreeHead(treeSize, rootHash),
+                leafIndex,
+                bundle.subtreeHashes(auditProofSubtrees),
+                previousTreeSize,
+                bundle.subtreeHashes(consistencyProofSubtrees));
+    }
+
+    // a view of this log that also remembers, for the lifetime of the view, the subtrees on the frontiers of the tree sizes
+    private VerifiableLog withFrontierCache(Collection<Integer> treeSizes) {
+        TreeSet<Long> sortedTreeSizes = new TreeSet<>();
+        for (int treeSize : treeSizes) {
+            sortedTreeSizes.add((long) treeSize);
+        }
+        return withRetainingCache(subtree -> isOnFrontier(subtree, sortedTreeSizes));
+    }
+
+    // subtrees ending at one of the tree sizes and their perfect left siblings, i.e. O(log n) subtrees per tree size
+    private static boolean isOnFrontier(Subtree subtree, TreeSet<Long> treeSizes) {
+        long start = subtree.getStart();
+        long size = subtree.getSize();
+        if (treeSizes.contains(start + size)) {
+            return true;
+        }
+        Long nextTreeSize = treeSizes.higher(start + size);
+        return Integer.bitCount((int) size) == 1 && start % size == 0 && nextTreeSize != null && nextTreeSize < start + 2 * size;
+    }
+
+    // looks up in the memoization store the subtrees needed to compute the given disjoint subtrees
+    SubtreePlan plan(List<Subtree> subtrees, int maxLookups) {
+        return SubtreePlan.of(memoizationStore, subtrees, maxLookups);
+    }
+
+    // a view of this log whose memoization store answers from a plan for the subtrees it looked up
+    VerifiableLog withPlan(SubtreePlan plan) {
+        if (memoizationStore instanceof DoNothing) {
+            return this;
+        }
+        return new VerifiableLog(messageDigest, merkleLeafStore, plan.over(memoizationStore), leafHashIndex, inFlight);
+    }
+
+    // a view of this log that reads its leaves from another store holding the same leaves
+    VerifiableLog withLeafStore(MerkleLeafStore leafStore) {
+        return new VerifiableLog(messageDigest, leafStore, memoizationStore, leafHashIndex, inFlight);
+    }
+
+    // a view of this log that also remembers, for the lifetime of the view, the subtrees matching the predicate
+    VerifiableLog withRetainingCache(Predicate<Subtree> retain) {
+        return new VerifiableLog(messageDigest, merkleLeafStore, new RetainingMemoizationStore(memoizationStore, retain), leafHashIndex, inFlight);
+    }
+
+    private List<byte[]> subtreeHashes(List<Subtree> subtrees) {
+        List<byte[]> hashes = new ArrayList<>();
+        for (Subtree subtree : subtrees) {
+            hashes.add(subtreeHash(subtree.getStart(), subtree.getSize()));
+        }
+        return hashes;
     }
 
     private List<byte[]> subtreeConsistencyProof(int low, int high, int start, boolean startFromOldRoot) {
@@ -103,6 +346,17 @@ public class VerifiableLog {
         }
     }
 
+    // boundary nodes, from left to right, of the range from begin (inclusive) to end (exclusive) within a subtree
+    private void subtreeRangeProof(int begin, int end, int start, int size, List<byte[]> rangeProof) {
+        if (end <= start || start + size <= begin) {
+            rangeProof.add(subtreeHash(start, size));
+        } else if (start < begin || end < start + size) {
+            int k = Util.k(size);
+            subtreeRangeProof(begin, end, start, k, rangeProof);
+            subtreeRangeProof(begin, end, start + k, size - k, rangeProof);
+        }
+    }
+
     // audit path within subtree of leaves from start (inclusive) to end (exclusive)
     private List<byte[]> subtreeAuditProof(int leafIndex, int start, int snapshotSize) {
         if (snapshotSize <= 1) {
@@ -125,30 +379,115 @@ public class VerifiableLog {
         if (size == 0) {
             return emptyTreeHash();
         } else if (size == 1) {
-            return Util.leafHash(merkleLeafStore.getLeafValue(start), messageDigest);
+            return Util.leafHash(merkleLeafStore.getLeafBuffer(start), messageDigest.get());
         } else {
             int k = Util.k(size);
             byte[] leftSubtreeHash = subtreeHash(start, k);
             byte[] rightSubtreeHash = subtreeHash(k + start, size - k);
-            return Util.branchHash(leftSubtreeHash, rightSubtreeHash, messageDigest);
+            return Util.branchHash(leftSubtreeHash, rightSubtreeHash, messageDigest.get());
         }
     }
 
-    private byte[] subtreeHash(int start, int size) {
+    byte[] subtreeHash(int start, int size) {
         byte[] result = memoizationStore.get(start, size);
 
         if (result != null) {
             return result;
         }
 
+        if (size >= SINGLE_FLIGHT_MIN_SIZE) {
+            return computeSubtreeHashOnce(start, size);
+        }
+
         byte[] realResult = computeSubtreeHash(start, size);
         memoizationStore.put(start, size, realResult);
         return realResult;
     }
 
+    // the first thread to miss a subtree computes it, and concurrent threads missing the same subtree wait for it
+    private byte[] computeSubtreeHashOnce(int start, int size) {
+        Subtree subtree = new Subtree(start, size);
+        CompletableFuture<byte[]> flight = new CompletableFuture<>();
+        CompletableFuture<byte[]> existingFlight = inFlight.putIfAbsent(subtree, flight);
+        if (existingFlight != null) {
+            try {
+                return existingFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            byte[] realResult = computeSubtreeHash(start, size);
+            memoizationStore.put(start, size, realResult);
+            flight.complete(realResult);
+            return realResult;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(subtree, flight);
+        }
+    }
+
+    int digestLength() {
+        return messageDigest.get().getDigestLength();
+    }
+
+    byte[] branchHash(byte[] leftSubtreeHash, byte[] rightSubtreeHash) {
+        return Util.branchHash(leftSubtreeHash, rightSubtreeHash, messageDigest.get());
+    }
+
+    private byte[] leafHash(int leafIndex) {
+        return Util.leafHash(merkleLeafStore.getLeafBuffer(leafIndex), messageDigest.get());
+    }
+
     private byte[] emptyTreeHash() {
-        return messageDigest.digest();
+        return messageDigest.get().digest();
     }
-}
 
+    /**
+     * A {@link MemoizationStore} that, on top of an underlying store, remembers the root hashes of the subtrees
+     * matching a predicate, so that operations sharing those subtrees only compute them once.
+     */
+    private static class RetainingMemoizationStore implements MemoizationStore {
+        private final MemoizationStore memoizationStore;
+        private final Predicate<Subtree> retain;
+        private final MemoizationStore retained;
+
+        RetainingMemoizationStore(MemoizationStore memoizationStore, Predicate<Subtree> retain) {
+            this.memoizationStore = memoizationStore;
+            this.retain = retain;
+            this.retained = new InMemory();
+        }
+
+        @Override
+        public void put(Integer start, Integer size, byte[] value) {
+            memoizationStore.put(start, size, value);
+            if (retain.test(new Subtree(start, size))) {
+                retained.put(start, size, value);
+            }
+        }
+
+        @Override
+        public byte[] get(Integer start, Integer size) {
+            byte[] result = retained.get(start, size);
+            return result != null ? result : memoizationStore.get(start, size);
+        }
 
+        @Override
+        public Map<Subtree, byte[]> getAll(Collection<Subtree> subtrees) {
+            Map<Subtree, byte[]> result = retained.getAll(subtrees);
+            List<Subtree> notRetained = new ArrayList<>();
+            for (Subtree subtree : subtrees) {
+                if (!result.containsKey(subtree)) {
+                    notRetained.add(subtree);
+                }
+            }
+            if (!notRetained.isEmpty()) {
+                result.putAll(memoizationStore.getAll(notRetained));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package uk.gov.verifiablelog;
+
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.BudgetedInMemory;
+
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A registry of named {@link VerifiableLog}s whose memoized subtree hashes share one memory budget.
+ *
+ * Each log is given its own {@link BudgetedInMemory} store. On every {@link #rebalance()}, a fixed fraction of the
+ * total budget is shared equally between the logs, so that no log is starved, and the rest is shared in proportion
+ * to the number of memoization lookups each log has made since the last rebalance. Shrinking the budget of a log
+ * evicts its least recently used hashes, so memory moves from cold logs to hot ones.
+ */
+public class VerifiableLogRegistry {
+
+    private static final double DEFAULT_FLOOR_FRACTION = 0.1;
+
+    private final MessageDigest messageDigest;
+    private final long totalBudgetBytes;
+    private final double floorFraction;
+    private final Map<String, RegisteredLog> logs;
+
+    /**
+     * Creates a new instance of a {@link VerifiableLogRegistry} object that reserves a tenth of the budget to be
+     * shared equally between the logs.
+     * @param messageDigest A cryptographic hash function for the Verifiable Logs to use
+     * @param totalBudgetBytes The maximum number of bytes of memoized hashes across all logs
+     */
+    public VerifiableLogRegistry(MessageDigest messageDigest, long totalBudgetBytes) {
+        this(messageDigest, totalBudgetBytes, DEFAULT_FLOOR_FRACTION);
+    }
+
+    /**
+     * Creates a new instance of a {@link VerifiableLogRegistry} object.
+     * @param messageDigest A cryptographic hash function for the Verifiable Logs to use
+     * @param totalBudgetBytes The maximum number of bytes of memoized hashes across all logs
+     * @param floorFraction The fraction of the budget, between 0 and 1, shared equally between the logs regardless
+     *                      of their load
+     */
+    public VerifiableLogRegistry(MessageDigest messageDigest, long totalBudgetBytes, double floorFraction) {
+        if (totalBudgetBytes < 0) {
+            throw new IllegalArgumentException("totalBudgetBytes must not be negative");
+        }
+        if (!(floorFraction >= 0 && floorFraction <= 1)) {
+            throw new IllegalArgumentException("floorFraction must be between 0 and 1");
+        }
+        this.messageDigest = messageDigest;
+        this.totalBudgetBytes = totalBudgetBytes;
+        this.floorFraction = floorFraction;
+        this.logs = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds a Verifiable Log to the registry and rebalances the budget to include it.
+     * @param name The unique name of the log
+     * @param merkleLeafStore The leaf store of the log
+     * @return The registered {@link VerifiableLog}
+     */
+    public synchronized VerifiableLog register(String name, MerkleLeafStore merkleLeafStore) {
+        if (logs.containsKey(name)) {
+            throw new IllegalArgumentException("a log named " + name + " is already registered");
+        }
+        BudgetedInMemory memoizationStore = new BudgetedInMemory(0);
+        RegisteredLog registeredLog = new RegisteredLog(new VerifiableLog(messageDigest, merkleLeafStore, memoizationStore), memoizationStore);
+        logs.put(name, registeredLog);
+        rebalance();
+        return registeredLog.verifiableLog;
+    }
+
+    /**
+     * Removes a Verifiable Log from the registry, releasing its share of the budget to the other logs.
+     * @param name The name of the log
+     * @return true if a log of that name was registered
+     */
+    public synchronized boolean unregister(String name) {
+        RegisteredLog removed = logs.remove(name);
+        if (removed == null) {
+            return false;
+        }
+        removed.memoizationStore.setBudgetBytes(0);
+        rebalance();
+        return true;
+    }
+
+    /**
+     * Gets a registered Verifiable Log.
+     * @param name The name of the log
+     * @return The {@link VerifiableLog}, or null if no log of that name is registered
+     */
+    public synchronized VerifiableLog get(String name) {
+        RegisteredLog registeredLog = logs.get(name);
+        return registeredLog == null ? null : registeredLog.verifiableLog;
+    }
+
+    /**
+     * Gets the memoization statistics of a registered Verifiable Log.
+     * @param name The name of the log
+     * @return The {@link LogStatistics} of the log, or null if no log of that name is registered
+     */
+    public synchronized LogStatistics statistics(String name) {
+        RegisteredLog registeredLog = logs.get(name);
+        if (registeredLog == null) {
+            return null;
+        }
+        BudgetedInMemory store = registeredLog.memoizationStore;
+        return new LogStatistics(store.getHits(), store.getMisses(), store.getBytesUsed(), store.getBudgetBytes());
+    }
+
+    /**
+     * Reallocates the budget between the registered logs according to their load since the last rebalance.
+     * Budgets are shrunk before any are grown, so the total never exceeds the budget of the registry.
+     */
+    public synchronized void rebalance() {
+        if (logs.isEmpty()) {
+            return;
+        }
+        long floorBytes = (long) (totalBudgetBytes * floorFraction) / logs.size();
+        long sharedBytes = totalBudgetBytes - floorBytes * logs.size();
+
+        long totalLoad = 0;
+        Map<RegisteredLog, Long> loads = new LinkedHashMap<>();
+        for (RegisteredLog registeredLog : logs.values()) {
+            long load = registeredLog.takeLoad();
+            loads.put(registeredLog, load);
+            totalLoad += load;
+        }
+
+        Map<RegisteredLog, Long> budgets = new LinkedHashMap<>();
+        for (Map.Entry<RegisteredLog, Long> entry : loads.entrySet()) {
+            double share = totalLoad == 0 ? 1.0 / logs.size() : (double) entry.getValue() / totalLoad;
+            budgets.put(entry.getKey(), floorBytes + (long) (sharedBytes * share));
+        }
+        for (Map.Entry<RegisteredLog, Long> entry : budgets.entrySet()) {
+            if (entry.getValue() < entry.getKey().memoizationStore.getBudgetBytes()) {
+                entry.getKey().memoizationStore.setBudgetBytes(entry.getValue());
+            }
+        }
+        for (Map.Entry<RegisteredLog, Long> entry : budgets.entrySet()) {
+            if (entry.getValue() > entry.getKey().memoizationStore.getBudgetBytes()) {
+                entry.getKey().memoizationStore.setBudgetBytes(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Calls {@link #rebalance()} periodically, so that budgets follow changes in load.
+     * @param scheduler The scheduler to rebalance on
+     * @param period The time between rebalances
+     * @param unit The unit of the period
+     * @return The scheduled rebalancing task, which can be cancelled to stop rebalancing
+     */
+    public ScheduledFuture<?> rebalanceEvery(ScheduledExecutorService scheduler, long period, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(this::rebalance, period, period, unit);
+    }
+
+    /**
+     * Gets the total number of bytes of memoized hashes currently held across all registered logs.
+     * @return The bytes used
+     */
+    public synchronized long getBytesUsed() {
+        long bytesUsed = 0;
+        for (RegisteredLog registeredLog : logs.values()) {
+            bytesUsed += registeredLog.memoizationStore.getBytesUsed();
+        }
+        return bytesUsed;
+    }
+
+    /**
+     * The memoization statistics of a Verifiable Log in a {@link VerifiableLogRegistry}.
+     */
+    public static final class LogStatistics {
+        private final long hits;
+        private final long misses;
+        private final long bytesUsed;
+        private final long budgetBytes;
+
+        LogStatistics(long hits, long misses, long bytesUsed, long budgetBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.bytesUsed = bytesUsed;
+            this.budgetBytes = budgetBytes;
+        }
+
+        /**
+         * Gets the number of memoization lookups that found a hash since the log was registered.
+         * @return The number of hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Gets the number of memoization lookups that did not find a hash since the log was registered.
+         * @return The number of misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Gets the fraction of memoization lookups that found a hash.
+         * @return The hit rate between 0 and 1, or 0 if there have been no lookups
+         */
+        public double getHitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        /**
+         * Gets the number of bytes of memoized hashes held for the log.
+         * @return The bytes used
+         */
+        public long getBytesUsed() {
+            return bytesUsed;
+        }
+
+        /**
+         * Gets the current share of the registry budget allocated to the log.
+         * @return The budget in bytes
+         */
+        public long getBudgetBytes() {
+            return budgetBytes;
+        }
+    }
+
+    private static class RegisteredLog {
+        private final VerifiableLog verifiableLog;
+        private final BudgetedInMemory memoizationStore;
+        private long lookupsAtLastRebalance;
+
+        RegisteredLog(VerifiableLog verifiableLog, BudgetedInMemory memoizationStore) {
+            this.verifiableLog = verifiableLog;
+            this.memoizationStore = memoizationStore;
+        }
+
+        long takeLoad() {
+            long lookups = memoizationStore.getHits() + memoizationStore.getMisses();
+            long load = lookups - lookupsAtLastRebalance;
+            lookupsAtLastRebalance = lookups;
+            return load;
+        }
+    }
+}
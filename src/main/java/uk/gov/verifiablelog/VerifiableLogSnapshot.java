@@ -0,0 +1,124 @@
+package uk.gov.verifiablelog;
+
+import java.util.List;
+
+/**
+ * An immutable view of a {@link VerifiableLog} pinned to a tree size.
+ *
+ * All results of a snapshot are for the same tree size, however many leaves are appended to the underlying
+ * Verifiable Log in the meantime, so a multi-step request can take a snapshot once and use it throughout without
+ * blocking appends. Snapshots share the {@link uk.gov.verifiablelog.store.memoization.MemoizationStore} of the
+ * Verifiable Log they were taken from, and are safe for use by multiple threads whenever it is.
+ */
+public final class VerifiableLogSnapshot {
+
+    private final VerifiableLog verifiableLog;
+    private final int treeSize;
+    private volatile byte[] rootHash;
+
+    VerifiableLogSnapshot(VerifiableLog verifiableLog, int treeSize) {
+        this.verifiableLog = verifiableLog;
+        this.treeSize = treeSize;
+    }
+
+    /**
+     * Gets the number of leaves in the Verifiable Log that the snapshot is pinned to.
+     * @return The tree size
+     */
+    public int getTreeSize() {
+        return treeSize;
+    }
+
+    /**
+     * Gets the root hash of the Verifiable Log at the tree size of the snapshot. The root hash is computed on first
+     * use and then kept by the snapshot.
+     * @return The Merkle Tree root hash
+     */
+    public byte[] getRootHash() {
+        byte[] result = rootHash;
+        if (result == null) {
+            result = verifiableLog.getSpecificRootHash(treeSize);
+            rootHash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the tree head of the Verifiable Log at the tree size of the snapshot.
+     * @return The {@link TreeHead} of the snapshot
+     */
+    public TreeHead getTreeHead() {
+        return new TreeHead(treeSize, getRootHash());
+    }
+
+    /**
+     * The audit proof for the leaf value at a specified index of the snapshot.
+     * @param leafIndex The zero-based index of the leaf for which the audit proof is required
+     * @return The ordered list of Merkle Tree hashes that provide the audit proof for the specified leaf
+     */
+    public List<byte[]> auditProof(int leafIndex) {
+        checkLeafIndex(leafIndex);
+        return verifiableLog.auditProof(leafIndex, treeSize);
+    }
+
+    /**
+     * The audit proof for the leaf with a specified leaf hash in the snapshot.
+     * @param leafHash The Merkle Tree leaf hash of the leaf for which the audit proof is required
+     * @return The ordered list of Merkle Tree hashes that provide the audit proof for the specified leaf
+     * @throws IllegalArgumentException if no leaf with the given leaf hash exists in the snapshot
+     */
+    public List<byte[]> auditProofByLeafHash(byte[] leafHash) {
+        return verifiableLog.auditProofByLeafHash(leafHash, treeSize);
+    }
+
+    /**
+     * Finds the index of the first leaf in the snapshot with the specified leaf hash.
+     * @param leafHash The Merkle Tree leaf hash of the leaf to find
+     * @return The zero-based index of the first leaf with the given leaf hash, or -1 if there is no such leaf
+     */
+    public int leafIndexOf(byte[] leafHash) {
+        return verifiableLog.leafIndexOf(leafHash, treeSize);
+    }
+
+    /**
+     * The consistency proof between an earlier tree size and the tree size of the snapshot.
+     * @param previousTreeSize The number of leaves in the earlier Verifiable Log
+     * @return The ordered list of Merkle Tree hashes that provide the consistency proof
+     */
+    public List<byte[]> consistencyProof(int previousTreeSize) {
+        if (treeSize < previousTreeSize) {
+            throw new IllegalArgumentException("previousTreeSize must not be greater than the tree size of the snapshot");
+        }
+        return verifiableLog.consistencyProof(previousTreeSize, treeSize);
+    }
+
+    /**
+     * The range proof for a contiguous range of leaves in the snapshot.
+     * @param begin The zero-based index of the first leaf in the range (inclusive)
+     * @param end The zero-based index of the last leaf in the range (exclusive)
+     * @return The list of Merkle Tree hashes, ordered from left to right, that provide the range proof
+     */
+    public List<byte[]> rangeProof(int begin, int end) {
+        return verifiableLog.rangeProof(begin, end, treeSize);
+    }
+
+    /**
+     * The tree head of the snapshot together with an audit proof for a leaf and a consistency proof from a previous
+     * tree size.
+     * @param leafIndex The zero-based index of the leaf for which the audit proof is required
+     * @param previousTreeSize The number of leaves in the Verifiable Log when the client last saw it
+     * @return The {@link ProofBundle} for the tree size of the snapshot
+     */
+    public ProofBundle proofBundle(int leafIndex, int previousTreeSize) {
+        checkLeafIndex(leafIndex);
+        ProofBundle proofBundle = verifiableLog.proofBundle(leafIndex, previousTreeSize, treeSize);
+        rootHash = proofBundle.getTreeHead().getRootHash();
+        return proofBundle;
+    }
+
+    private void checkLeafIndex(int leafIndex) {
+        if (leafIndex < 0 || treeSize <= leafIndex) {
+            throw new IllegalArgumentException("leafIndex must be less than the tree size of the snapshot");
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package uk.gov.verifiablelog;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import static uk.gov.verifiablelog.Util.branchHash;
@@ -23,8 +25,29 @@ public class VerifiableLogVerification {
      * @return true if the leaf data can be verified against the audit proof, otherwise false
      */
     public static boolean isValidAuditProof(byte[] expectedRootHash, int treeSize, int leafIndex, List<byte[]> auditProof, byte[] leafData) {
-        byte[] computedRootHash = rootHashFromAuditProof(treeSize, leafIndex, new ArrayList<>(auditProof), leafData, Util.sha256Instance());
-        return Arrays.equals(computedRootHash, expectedRootHash);
+        if (!isValidAuditPathShape(treeSize, leafIndex, auditProof.size())) {
+            return false;
+        }
+        ByteBuffer computedRootHash = rootHashFromAuditProof(treeSize, leafIndex, wrap(auditProof), leafData, Util.sha256Instance());
+        return computedRootHash.equals(ByteBuffer.wrap(expectedRootHash));
+    }
+
+    /**
+     * Verifies a piece of leaf data against an audit proof encoded by {@link ProofCodec}, without copying the
+     * Merkle Tree hashes out of the encoded buffer.
+     * @param expectedRootHash The Merkle Tree root hash of the Verifiable Log that computed the audit proof
+     * @param encodedAuditProof The encoded audit proof to verify against, which is read from its current position
+     * @param leafData The raw leaf data to verify
+     * @return true if the leaf data can be verified against the audit proof, otherwise false
+     * @throws IllegalArgumentException if the buffer does not contain a valid encoded audit proof
+     */
+    public static boolean isValidAuditProof(byte[] expectedRootHash, ByteBuffer encodedAuditProof, byte[] leafData) {
+        ProofCodec.EncodedAuditProof auditProof = ProofCodec.readAuditProof(encodedAuditProof.duplicate());
+        if (!isValidAuditPathShape(auditProof.getTreeSize(), auditProof.getLeafIndex(), auditProof.getAuditPath().size())) {
+            return false;
+        }
+        ByteBuffer computedRootHash = rootHashFromAuditProof(auditProof.getTreeSize(), auditProof.getLeafIndex(), new ArrayList<>(auditProof.getAuditPath()), leafData, Util.sha256Instance());
+        return computedRootHash.equals(ByteBuffer.wrap(expectedRootHash));
     }
 
     /**
@@ -37,41 +60,161 @@ public class VerifiableLogVerification {
      * @return true if the root hashes for the two tree sizes can be verified as consistent, otherwise false
      */
     public static boolean isValidConsistencyProof(int treeSize1, byte[] oldRoot, int treeSize2, byte[] newRoot, List<byte[]> consistencyProof) {
-        if (treeSize1 == treeSize2) {
+        if (treeSize1 == treeSize2 && treeSize1 >= 0) {
             return Arrays.equals(oldRoot, newRoot) && consistencyProof.isEmpty();
         }
-        byte[] computedOldRoot = oldRootHashFromConsistencyProof(treeSize1, treeSize2, new ArrayList<>(consistencyProof), oldRoot);
-        byte[] computedNewRoot = newRootHashFromConsistencyProof(treeSize1, treeSize2, new ArrayList<>(consistencyProof), oldRoot);
-        return Arrays.equals(oldRoot, computedOldRoot) && Arrays.equals(newRoot, computedNewRoot);
+        if (!isValidConsistencyPathShape(treeSize1, treeSize2, consistencyProof.size())) {
+            return false;
+        }
+        return isValidConsistencyPath(treeSize1, oldRoot, treeSize2, newRoot, wrap(consistencyProof));
+    }
+
+    /**
+     * Verifies the consistency of two tree sizes using a consistency proof encoded by {@link ProofCodec}, without
+     * copying the Merkle Tree hashes out of the encoded buffer.
+     * @param oldRoot The Merkle Tree root hash of the smaller Verifiable Log
+     * @param newRoot The Merkle Tree root hash of the larger Verifiable Log
+     * @param encodedConsistencyProof The encoded consistency proof to verify against, which is read from its current position
+     * @return true if the root hashes for the two tree sizes can be verified as consistent, otherwise false
+     * @throws IllegalArgumentException if the buffer does not contain a valid encoded consistency proof
+     */
+    public static boolean isValidConsistencyProof(byte[] oldRoot, byte[] newRoot, ByteBuffer encodedConsistencyProof) {
+        ProofCodec.EncodedConsistencyProof consistencyProof = ProofCodec.readConsistencyProof(encodedConsistencyProof.duplicate());
+        if (consistencyProof.getTreeSize1() == consistencyProof.getTreeSize2()) {
+            return Arrays.equals(oldRoot, newRoot) && consistencyProof.getConsistencyPath().isEmpty();
+        }
+        if (!isValidConsistencyPathShape(consistencyProof.getTreeSize1(), consistencyProof.getTreeSize2(), consistencyProof.getConsistencyPath().size())) {
+            return false;
+        }
+        return isValidConsistencyPath(consistencyProof.getTreeSize1(), oldRoot, consistencyProof.getTreeSize2(), newRoot, consistencyProof.getConsistencyPath());
+    }
+
+    private static boolean isValidConsistencyPath(int treeSize1, byte[] oldRoot, int treeSize2, byte[] newRoot, List<ByteBuffer> consistencyProof) {
+        ByteBuffer computedOldRoot = oldRootHashFromConsistencyProof(treeSize1, treeSize2, new ArrayList<>(consistencyProof), ByteBuffer.wrap(oldRoot));
+        ByteBuffer computedNewRoot = newRootHashFromConsistencyProof(treeSize1, treeSize2, new ArrayList<>(consistencyProof), ByteBuffer.wrap(oldRoot));
+        return ByteBuffer.wrap(oldRoot).equals(computedOldRoot) && ByteBuffer.wrap(newRoot).equals(computedNewRoot);
+    }
+
+    /**
+     * Verifies a {@link ProofBundle} from a Verifiable Log, i.e. that the leaf data is included in the tree head of
+     * the bundle and that the tree head is consistent with the tree head the client saw previously.
+     * @param proofBundle The proof bundle to verify
+     * @param leafData The raw leaf data to verify
+     * @param previousRootHash The Merkle Tree root hash of the Verifiable Log at the previous tree size of the bundle
+     * @return true if both the audit proof and the consistency proof in the bundle can be verified, otherwise false
+     */
+    public static boolean isValidProofBundle(ProofBundle proofBundle, byte[] leafData, byte[] previousRootHash) {
+        TreeHead treeHead = proofBundle.getTreeHead();
+        return isValidAuditProof(treeHead.getRootHash(), treeHead.getTreeSize(), proofBundle.getLeafIndex(), proofBundle.getAuditProof(), leafData)
+                && isValidConsistencyProof(proofBundle.getPreviousTreeSize(), previousRootHash, treeHead.getTreeSize(), treeHead.getRootHash(), proofBundle.getConsistencyProof());
+    }
+
+    /**
+     * Verifies a contiguous range of leaf data against a range proof from a Verifiable Log. Each leaf in the range
+     * is hashed exactly once.
+     * @param expectedRootHash The Merkle Tree root hash of the Verifiable Log that computed the range proof
+     * @param treeSize The number of leaves in the Verifiable Log that computed the range proof
+     * @param begin The zero-based index of the first leaf in the range
+     * @param leafData The raw leaf data of every leaf in the range, ordered by index
+     * @param rangeProof The range proof to verify against
+     * @return true if the leaf data can be verified against the range proof, otherwise false
+     */
+    public static boolean isValidRangeProof(byte[] expectedRootHash, int treeSize, int begin, List<byte[]> leafData, List<byte[]> rangeProof) {
+        int end = begin + leafData.size();
+        if (begin < 0 || end <= begin || treeSize < end) {
+            return false;
+        }
+        Iterator<byte[]> proofIterator = rangeProof.iterator();
+        byte[] computedRootHash = rootHashFromRangeProof(begin, end, 0, treeSize, leafData.iterator(), proofIterator, Util.sha256Instance());
+        return computedRootHash != null && !proofIterator.hasNext() && Arrays.equals(computedRootHash, expectedRootHash);
+    }
+
+    private static byte[] rootHashFromRangeProof(int begin, int end, int start, int size, Iterator<byte[]> leafData, Iterator<byte[]> rangeProof, MessageDigest digest) {
+        if (end <= start || start + size <= begin) {
+            return rangeProof.hasNext() ? rangeProof.next() : null;
+        }
+        if (size == 1) {
+            return Util.leafHash(leafData.next(), digest);
+        }
+        int k = k(size);
+        byte[] leftChild = rootHashFromRangeProof(begin, end, start, k, leafData, rangeProof, digest);
+        byte[] rightChild = rootHashFromRangeProof(begin, end, start + k, size - k, leafData, rangeProof, digest);
+        if (leftChild == null || rightChild == null) {
+            return null;
+        }
+        return branchHash(leftChild, rightChild, digest);
+    }
+
+    // whether the leaf is in the tree and the audit path has as many hashes as the tree has levels above the leaf
+    private static boolean isValidAuditPathShape(int treeSize, int leafIndex, int pathLength) {
+        if (leafIndex < 0 || treeSize <= leafIndex) {
+            return false;
+        }
+        int expectedPathLength = 0;
+        while (treeSize > 1) {
+            int k = k(treeSize);
+            if (leafIndex < k) {
+                treeSize = k;
+            } else {
+                leafIndex -= k;
+                treeSize -= k;
+            }
+            expectedPathLength++;
+        }
+        return pathLength == expectedPathLength;
     }
 
-    private static byte[] rootHashFromAuditProof(int treeSize, int leafIndex, List<byte[]> auditProof, byte[] leafData, MessageDigest digest) {
+    // whether a consistency path can exist between the two sizes and has as many hashes as RFC 6962 SUBPROOF gives
+    private static boolean isValidConsistencyPathShape(int low, int high, int pathLength) {
+        if (low <= 0 || high <= low) {
+            return false;
+        }
+        int expectedPathLength = 0;
+        boolean startFromOldRoot = true;
+        while (low != high) {
+            int k = k(high);
+            if (low <= k) {
+                high = k;
+            } else {
+                low -= k;
+                high -= k;
+                startFromOldRoot = false;
+            }
+            expectedPathLength++;
+        }
+        if (!startFromOldRoot) {
+            expectedPathLength++;
+        }
+        return pathLength == expectedPathLength;
+    }
+
+    private static ByteBuffer rootHashFromAuditProof(int treeSize, int leafIndex, List<ByteBuffer> auditProof, byte[] leafData, MessageDigest digest) {
         if (treeSize == 1) {
             if (!auditProof.isEmpty()) {
                 throw new IllegalStateException("Should have an empty audit path for trees of size 1");
             }
-            return Util.leafHash(leafData, digest);
+            return ByteBuffer.wrap(Util.leafHash(leafData, digest));
         }
         int k = k(treeSize);
-        byte[] nextHash = auditProof.remove(auditProof.size() - 1);
+        ByteBuffer nextHash = auditProof.remove(auditProof.size() - 1);
         if (leafIndex < k) {
-            byte[] leftChild = rootHashFromAuditProof(k, leafIndex, auditProof, leafData, digest);
-            return branchHash(leftChild, nextHash, digest);
+            ByteBuffer leftChild = rootHashFromAuditProof(k, leafIndex, auditProof, leafData, digest);
+            return ByteBuffer.wrap(branchHash(leftChild, nextHash, digest));
         } else {
-            byte[] rightChild = rootHashFromAuditProof(treeSize - k, leafIndex - k, auditProof, leafData, digest);
-            return branchHash(nextHash, rightChild, digest);
+            ByteBuffer rightChild = rootHashFromAuditProof(treeSize - k, leafIndex - k, auditProof, leafData, digest);
+            return ByteBuffer.wrap(branchHash(nextHash, rightChild, digest));
         }
     }
 
-    private static byte[] newRootHashFromConsistencyProof(int low, int high, List<byte[]> consistencyProof, byte[] oldRoot) {
+    private static ByteBuffer newRootHashFromConsistencyProof(int low, int high, List<ByteBuffer> consistencyProof, ByteBuffer oldRoot) {
         return rootHashFromConsistencyProof(low, high, consistencyProof, oldRoot, Util.sha256Instance(), true, true);
     }
 
-    private static byte[] oldRootHashFromConsistencyProof(int low, int high, List<byte[]> consistencyProof, byte[] oldRoot) {
+    private static ByteBuffer oldRootHashFromConsistencyProof(int low, int high, List<ByteBuffer> consistencyProof, ByteBuffer oldRoot) {
         return rootHashFromConsistencyProof(low, high, consistencyProof, oldRoot, Util.sha256Instance(), false, true);
     }
 
-    private static byte[] rootHashFromConsistencyProof(int low, int high, List<byte[]> consistencyProof, byte[] oldRoot, MessageDigest digest, boolean computeNewRoot, boolean startFromOldRoot) {
+    private static ByteBuffer rootHashFromConsistencyProof(int low, int high, List<ByteBuffer> consistencyProof, ByteBuffer oldRoot, MessageDigest digest, boolean computeNewRoot, boolean startFromOldRoot) {
         if (low == high) {
             if (startFromOldRoot) {
                 // this is the b == true case in RFC 6962
@@ -80,17 +223,25 @@ public class VerifiableLogVerification {
             return consistencyProof.remove(consistencyProof.size() - 1);
         }
         int k = Util.k(high);
-        byte[] nextHash = consistencyProof.remove(consistencyProof.size() - 1);
+        ByteBuffer nextHash = consistencyProof.remove(consistencyProof.size() - 1);
         if (low <= k) {
-            byte[] leftChild = rootHashFromConsistencyProof(low, k, consistencyProof, oldRoot, digest, computeNewRoot, startFromOldRoot);
+            ByteBuffer leftChild = rootHashFromConsistencyProof(low, k, consistencyProof, oldRoot, digest, computeNewRoot, startFromOldRoot);
             if (computeNewRoot) {
-                return Util.branchHash(leftChild, nextHash, digest);
+                return ByteBuffer.wrap(branchHash(leftChild, nextHash, digest));
             } else {
                 return leftChild;
             }
         } else {
-            byte[] rightChild = rootHashFromConsistencyProof(low - k, high - k, consistencyProof, oldRoot, digest, computeNewRoot, false);
-            return Util.branchHash(nextHash, rightChild, digest);
+            ByteBuffer rightChild = rootHashFromConsistencyProof(low - k, high - k, consistencyProof, oldRoot, digest, computeNewRoot, false);
+            return ByteBuffer.wrap(branchHash(nextHash, rightChild, digest));
+        }
+    }
+
+    private static List<ByteBuffer> wrap(List<byte[]> hashes) {
+        List<ByteBuffer> wrapped = new ArrayList<>(hashes.size());
+        for (byte[] hash : hashes) {
+            wrapped.add(ByteBuffer.wrap(hash));
         }
+        return wrapped;
     }
 }
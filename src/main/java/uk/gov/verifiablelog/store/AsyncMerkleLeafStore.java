@@ -0,0 +1,78 @@
+package uk.gov.verifiablelog.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Defines the contract through which a consumer of an {@link AsyncMerkleLeafStore} can query for leaf data without
+ * blocking a thread while the data is fetched, as for a store backed by a remote service.
+ */
+public interface AsyncMerkleLeafStore {
+
+    /**
+     * Fetches a leaf value by its index.
+     * @param leafIndex The zero-based index of the leaf, which must be less than {@link #totalLeaves()}
+     * @return A future of the raw data for the leaf
+     */
+    CompletableFuture<byte[]> getLeafValue(int leafIndex);
+
+    /**
+     * Fetches a range of leaf values by their indexes, which implementations can override to fetch them in one
+     * request.
+     * @param start The zero-based index of the first leaf
+     * @param end The zero-based index after the last leaf, which must not be more than {@link #totalLeaves()}
+     * @return A future of the raw data for each leaf in the range, in order
+     */
+    default CompletableFuture<List<byte[]>> getLeafValues(int start, int end) {
+        List<CompletableFuture<byte[]>> leafValues = new ArrayList<>();
+        for (int leafIndex = start; leafIndex < end; leafIndex++) {
+            leafValues.add(getLeafValue(leafIndex));
+        }
+        return CompletableFuture.allOf(leafValues.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<byte[]> result = new ArrayList<>(leafValues.size());
+            for (CompletableFuture<byte[]> leafValue : leafValues) {
+                result.add(leafValue.join());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Gets the total number of leaves.
+     * @return The total number of leaves
+     */
+    int totalLeaves();
+
+    /**
+     * Adapts a {@link MerkleLeafStore} to an {@link AsyncMerkleLeafStore} by reading from it on an executor.
+     * @param merkleLeafStore The store to read from
+     * @param executor The executor to read on
+     * @return An {@link AsyncMerkleLeafStore} reading from the store
+     */
+    static AsyncMerkleLeafStore from(MerkleLeafStore merkleLeafStore, Executor executor) {
+        return new AsyncMerkleLeafStore() {
+            @Override
+            public CompletableFuture<byte[]> getLeafValue(int leafIndex) {
+                return CompletableFuture.supplyAsync(() -> merkleLeafStore.getLeafValue(leafIndex), executor);
+            }
+
+            @Override
+            public CompletableFuture<List<byte[]>> getLeafValues(int start, int end) {
+                return CompletableFuture.supplyAsync(() -> {
+                    List<byte[]> leafValues = new ArrayList<>(end - start);
+                    for (int leafIndex = start; leafIndex < end; leafIndex++) {
+                        leafValues.add(merkleLeafStore.getLeafValue(leafIndex));
+                    }
+                    return leafValues;
+                }, executor);
+            }
+
+            @Override
+            public int totalLeaves() {
+                return merkleLeafStore.totalLeaves();
+            }
+        };
+    }
+}
@@ -0,0 +1,236 @@
+package uk.gov.verifiablelog.store;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A {@link MerkleLeafStore} decorator that keeps recently read leaf values in memory, within a budget of bytes, so
+ * that leaves read repeatedly, such as those near the end of the log, are only read from the underlying store once.
+ *
+ * When the budget is exceeded, the leaves with the lowest indexes are evicted first, as leaves near the end of a
+ * growing log are read far more often than older ones. A leaf lower than every cached leaf is not cached at all if
+ * the cache is full.
+ *
+ * Leaf values are either kept on the Java heap, where each is charged its length plus an estimate of the per-entry
+ * overhead, or copied into a single direct buffer of the budget size outside the Java heap, where they are charged
+ * only their length. The direct buffer is filled from the start and compacted when it runs out of space. Leaves are
+ * read from the underlying store without holding the lock, and the cache is safe for use by multiple threads if the
+ * underlying store is.
+ */
+public class CachingLeafStore implements MerkleLeafStore {
+
+    /**
+     * The estimated number of bytes each leaf value kept on the Java heap uses in addition to its length.
+     */
+    public static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    // when the direct buffer runs out of space, leaves are evicted until no more than this fraction of it is used
+    private static final double COMPACTION_LOW_WATER = 0.75;
+
+    private final MerkleLeafStore merkleLeafStore;
+    private final long budgetBytes;
+    private final TreeMap<Integer, byte[]> heapValues;
+    private final ByteBuffer arena;
+    private final TreeMap<Integer, Slot> arenaSlots;
+    private long bytesUsed;
+    private int arenaPosition;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new instance of a {@link CachingLeafStore} object that keeps leaf values on the Java heap.
+     * @param merkleLeafStore The store to read leaves from
+     * @param budgetBytes The maximum number of bytes to use for cached leaf values
+     */
+    public CachingLeafStore(MerkleLeafStore merkleLeafStore, long budgetBytes) {
+        this(merkleLeafStore, budgetBytes, false);
+    }
+
+    /**
+     * Creates a new instance of a {@link CachingLeafStore} object.
+     * @param merkleLeafStore The store to read leaves from
+     * @param budgetBytes The maximum number of bytes to use for cached leaf values, which is allocated up front if
+     *                    off the Java heap and must then be at most {@link Integer#MAX_VALUE}
+     * @param offHeap Whether to keep leaf values in a direct buffer outside the Java heap
+     */
+    public CachingLeafStore(MerkleLeafStore merkleLeafStore, long budgetBytes, boolean offHeap) {
+        if (budgetBytes < 0 || (offHeap && budgetBytes > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("budgetBytes must not be negative, nor more than Integer.MAX_VALUE off the heap");
+        }
+        this.merkleLeafStore = merkleLeafStore;
+        this.budgetBytes = budgetBytes;
+        this.heapValues = offHeap ? null : new TreeMap<>();
+        this.arena = offHeap ? ByteBuffer.allocateDirect((int) budgetBytes) : null;
+        this.arenaSlots = offHeap ? new TreeMap<>() : null;
+    }
+
+    /**
+     * Gets a leaf value by its index, from the cache if it is there, else from the underlying store.
+     * @param leafIndex The zero-based index of the leaf, which must be less than {@link #totalLeaves()}
+     * @return The raw data for the leaf
+     */
+    @Override
+    public byte[] getLeafValue(int leafIndex) {
+        byte[] leafValue = cached(leafIndex);
+        if (leafValue != null) {
+            return leafValue;
+        }
+        leafValue = merkleLeafStore.getLeafValue(leafIndex);
+        cache(leafIndex, leafValue);
+        return leafValue;
+    }
+
+    /**
+     * Gets the total number of leaves in the underlying store.
+     * @return The total number of leaves
+     */
+    @Override
+    public int totalLeaves() {
+        return merkleLeafStore.totalLeaves();
+    }
+
+    /**
+     * Gets the number of bytes charged for the leaf values currently cached.
+     * @return The bytes used
+     */
+    public synchronized long getBytesUsed() {
+        return bytesUsed;
+    }
+
+    /**
+     * Gets the number of leaf values currently cached.
+     * @return The number of entries
+     */
+    public synchronized int size() {
+        return heapValues != null ? heapValues.size() : arenaSlots.size();
+    }
+
+    /**
+     * Gets the number of leaf reads served from the cache.
+     * @return The number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of leaf reads passed to the underlying store.
+     * @return The number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private synchronized byte[] cached(int leafIndex) {
+        byte[] leafValue;
+        if (heapValues != null) {
+            leafValue = heapValues.get(leafIndex);
+        } else {
+            Slot slot = arenaSlots.get(leafIndex);
+            leafValue = slot == null ? null : read(slot);
+        }
+        if (leafValue == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return leafValue;
+    }
+
+    private synchronized void cache(int leafIndex, byte[] leafValue) {
+        if (heapValues != null) {
+            cacheOnHeap(leafIndex, leafValue);
+        } else {
+            cacheInArena(leafIndex, leafValue);
+        }
+    }
+
+    private void cacheOnHeap(int leafIndex, byte[] leafValue) {
+        long cost = leafValue.length + ENTRY_OVERHEAD_BYTES;
+        if (cost > budgetBytes || heapValues.containsKey(leafIndex) || !makeRoom(leafIndex, budgetBytes - cost)) {
+            return;
+        }
+        heapValues.put(leafIndex, leafValue);
+        bytesUsed += cost;
+    }
+
+    private void cacheInArena(int leafIndex, byte[] leafValue) {
+        int length = leafValue.length;
+        if (length > budgetBytes || arenaSlots.containsKey(leafIndex) || !makeRoom(leafIndex, budgetBytes - length)) {
+            return;
+        }
+        if (arenaPosition + length > arena.capacity()) {
+            // evict further before compacting, so that compactions are rare compared to the bytes cached between them
+            makeRoom(leafIndex, Math.min((long) (budgetBytes * COMPACTION_LOW_WATER), budgetBytes - length));
+            compact();
+        }
+        ByteBuffer target = arena.duplicate();
+        target.position(arenaPosition);
+        target.put(leafValue);
+        arenaSlots.put(leafIndex, new Slot(arenaPosition, length));
+        arenaPosition += length;
+        bytesUsed += length;
+    }
+
+    // evicts leaves lower than the given one until no more than maxBytesUsed are used, returning whether that was enough
+    private boolean makeRoom(int leafIndex, long maxBytesUsed) {
+        while (bytesUsed > maxBytesUsed) {
+            if (size() == 0 || firstCachedIndex() > leafIndex) {
+                return false;
+            }
+            evictFirst();
+        }
+        return true;
+    }
+
+    private int firstCachedIndex() {
+        return heapValues != null ? heapValues.firstKey() : arenaSlots.firstKey();
+    }
+
+    private void evictFirst() {
+        if (heapValues != null) {
+            bytesUsed -= heapValues.pollFirstEntry().getValue().length + ENTRY_OVERHEAD_BYTES;
+        } else {
+            bytesUsed -= arenaSlots.pollFirstEntry().getValue().length;
+        }
+    }
+
+    // moves the cached values to the start of the direct buffer, in the order they are in it, leaving no gaps
+    private void compact() {
+        List<Slot> slots = new ArrayList<>(arenaSlots.values());
+        slots.sort(Comparator.comparingInt(slot -> slot.offset));
+        int position = 0;
+        for (Slot slot : slots) {
+            if (slot.offset != position) {
+                byte[] value = read(slot);
+                ByteBuffer target = arena.duplicate();
+                target.position(position);
+                target.put(value);
+                slot.offset = position;
+            }
+            position += slot.length;
+        }
+        arenaPosition = position;
+    }
+
+    private byte[] read(Slot slot) {
+        byte[] value = new byte[slot.length];
+        ByteBuffer source = arena.duplicate();
+        source.position(slot.offset);
+        source.get(value);
+        return value;
+    }
+
+    private static class Slot {
+        private int offset;
+        private final int length;
+
+        Slot(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package uk.gov.verifiablelog.store;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Defines the contract through which a consumer of a {@link MerkleLeafStore} can query for leaf data.
  */
@@ -12,6 +16,30 @@ public interface MerkleLeafStore {
      */
     byte[] getLeafValue(int leafIndex);
 
+    /**
+     * Gets a leaf value by its index as a buffer, which implementations can override to avoid copying the data.
+     * The buffer must not be modified by the caller.
+     * @param leafIndex The zero-based index of the leaf, which must be less than {@link #totalLeaves()}
+     * @return The raw data for the leaf, from the position to the limit of the buffer
+     */
+    default ByteBuffer getLeafBuffer(int leafIndex) {
+        return ByteBuffer.wrap(getLeafValue(leafIndex));
+    }
+
+    /**
+     * Gets a range of leaf values by their indexes as buffers.
+     * @param start The zero-based index of the first leaf
+     * @param end The zero-based index after the last leaf, which must not be more than {@link #totalLeaves()}
+     * @return The raw data for each leaf in the range, in order
+     */
+    default List<ByteBuffer> getLeafBuffers(int start, int end) {
+        List<ByteBuffer> leafBuffers = new ArrayList<>(Math.max(0, end - start));
+        for (int leafIndex = start; leafIndex < end; leafIndex++) {
+            leafBuffers.add(getLeafBuffer(leafIndex));
+        }
+        return leafBuffers;
+    }
+
     /**
      * Gets the total number of leaves.
      * @return The total number of leaves
@@ -0,0 +1,246 @@
+package uk.gov.verifiablelog.store.file;
+
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A {@link MerkleLeafStore} that appends leaf values to segment files in a directory and reads them back through
+ * memory-mapped buffers, so that leaf reads run at page cache speed and {@link #getLeafBuffer(int)} copies nothing.
+ *
+ * The directory holds an index file and numbered segment files. The index file starts with a header holding the
+ * number of leaves, followed by a dense array of fixed-size records giving the segment, offset and length of each
+ * leaf value. A leaf value never spans two segments. The number of leaves in the header is only updated after the
+ * value and its record are written, so a leaf is never visible before it is complete.
+ *
+ * Leaves can be read by multiple threads while one thread appends. Files are mapped at their full size when they
+ * are created and are sparse until written. Mapped files stay mapped until the buffers are garbage collected.
+ */
+public class SegmentedFileLeafStore implements MerkleLeafStore, Closeable {
+
+    /**
+     * The default maximum size of a segment file, in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 28;
+
+    private static final String INDEX_FILE = "index";
+    private static final int MAGIC = 0x564c4946;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 12;
+    private static final int RECORDS_PER_REGION = 1 << 20;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] indexRegions;
+    private volatile MappedByteBuffer[] segments;
+    private volatile int totalLeaves;
+    private int segmentPosition;
+
+    /**
+     * Opens the leaf store in a directory, creating it if it does not exist, with the default segment size.
+     * @param directory The directory holding the index and segment files
+     * @throws IOException if the files cannot be created, opened or mapped
+     */
+    public SegmentedFileLeafStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the leaf store in a directory, creating it if it does not exist.
+     * @param directory The directory holding the index and segment files
+     * @param segmentSize The maximum size of a segment file in bytes, which limits the size of a leaf value; it
+     *                    must be the same every time the store is opened
+     * @throws IOException if the files cannot be created, opened or mapped
+     */
+    public SegmentedFileLeafStore(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("segmentSize must be positive");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        this.header = map(directory.resolve(INDEX_FILE), 0, HEADER_SIZE);
+        if (header.getInt(0) == 0) {
+            header.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, 0);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("not a leaf store index: " + directory.resolve(INDEX_FILE));
+        }
+        int count = (int) header.getLong(8);
+
+        this.indexRegions = new MappedByteBuffer[0];
+        this.segments = new MappedByteBuffer[0];
+        if (count > 0) {
+            ensureIndexRegion(count - 1);
+            ByteBuffer last = record(count - 1);
+            ensureSegment(last.getInt(0));
+            segmentPosition = last.getInt(4) + last.getInt(8);
+        }
+        this.totalLeaves = count;
+    }
+
+    /**
+     * Appends a leaf value to the end of the store.
+     * @param leafValue The raw data for the leaf
+     * @return The zero-based index of the new leaf
+     * @throws UncheckedIOException if a new segment or index file cannot be created
+     */
+    public int append(byte[] leafValue) {
+        return append(ByteBuffer.wrap(leafValue));
+    }
+
+    /**
+     * Appends a leaf value to the end of the store.
+     * @param leafValue The raw data for the leaf, from the position to the limit of the buffer, which is not changed
+     * @return The zero-based index of the new leaf
+     * @throws UncheckedIOException if a new segment or index file cannot be created
+     */
+    public synchronized int append(ByteBuffer leafValue) {
+        int length = leafValue.remaining();
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("leaf value of " + length + " bytes is larger than the segment size");
+        }
+        int leafIndex = totalLeaves;
+        if (leafIndex == Integer.MAX_VALUE) {
+            throw new IllegalStateException("the store is full");
+        }
+        try {
+            int segment = segments.length - 1;
+            if (segment < 0 || segmentPosition + length > segmentSize) {
+                segment++;
+                ensureSegment(segment);
+                segmentPosition = 0;
+            }
+            ensureIndexRegion(leafIndex);
+
+            ByteBuffer target = segments[segment].duplicate();
+            target.position(segmentPosition);
+            target.put(leafValue.duplicate());
+
+            ByteBuffer record = record(leafIndex);
+            record.putInt(0, segment).putInt(4, segmentPosition).putInt(8, length);
+            segmentPosition += length;
+
+            header.putLong(8, leafIndex + 1L);
+            totalLeaves = leafIndex + 1;
+            return leafIndex;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets a leaf value by its index, copied out of the mapped segment file.
+     * @param leafIndex The zero-based index of the leaf, which must be less than {@link #totalLeaves()}
+     * @return The raw data for the leaf
+     */
+    @Override
+    public byte[] getLeafValue(int leafIndex) {
+        ByteBuffer leafBuffer = getLeafBuffer(leafIndex);
+        byte[] leafValue = new byte[leafBuffer.remaining()];
+        leafBuffer.get(leafValue);
+        return leafValue;
+    }
+
+    /**
+     * Gets a leaf value by its index as a read-only view of the mapped segment file, without copying it.
+     * @param leafIndex The zero-based index of the leaf, which must be less than {@link #totalLeaves()}
+     * @return The raw data for the leaf, from the position to the limit of the buffer
+     */
+    @Override
+    public ByteBuffer getLeafBuffer(int leafIndex) {
+        if (leafIndex < 0 || leafIndex >= totalLeaves) {
+            throw new IndexOutOfBoundsException("leaf index " + leafIndex + " is not less than " + totalLeaves);
+        }
+        ByteBuffer record = record(leafIndex);
+        ByteBuffer leafBuffer = segments[record.getInt(0)].asReadOnlyBuffer();
+        int offset = record.getInt(4);
+        leafBuffer.limit(offset + record.getInt(8)).position(offset);
+        return leafBuffer.slice();
+    }
+
+    /**
+     * Gets the total number of leaves, as recorded in the index.
+     * @return The total number of leaves
+     */
+    @Override
+    public int totalLeaves() {
+        return totalLeaves;
+    }
+
+    /**
+     * Writes all appended leaves and the index to the storage device.
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        for (MappedByteBuffer indexRegion : indexRegions) {
+            indexRegion.force();
+        }
+        header.force();
+    }
+
+    /**
+     * Writes all appended leaves and the index to the storage device. Buffers already returned by
+     * {@link #getLeafBuffer(int)} remain readable.
+     */
+    @Override
+    public void close() {
+        force();
+    }
+
+    // the record of a leaf, with its segment at 0, offset at 4 and length at 8
+    private ByteBuffer record(int leafIndex) {
+        ByteBuffer record = indexRegions[leafIndex / RECORDS_PER_REGION].duplicate();
+        record.position((leafIndex % RECORDS_PER_REGION) * RECORD_SIZE);
+        return record.slice();
+    }
+
+    private void ensureIndexRegion(int leafIndex) throws IOException {
+        int region = leafIndex / RECORDS_PER_REGION;
+        MappedByteBuffer[] regions = indexRegions;
+        if (region < regions.length) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(regions, region + 1);
+        for (int r = regions.length; r <= region; r++) {
+            long regionBytes = (long) RECORDS_PER_REGION * RECORD_SIZE;
+            grown[r] = map(directory.resolve(INDEX_FILE), HEADER_SIZE + r * regionBytes, regionBytes);
+        }
+        indexRegions = grown;
+    }
+
+    private void ensureSegment(int segment) throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        if (segment < mapped.length) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(mapped, segment + 1);
+        for (int s = mapped.length; s <= segment; s++) {
+            grown[s] = map(directory.resolve(String.format("segment-%06d", s)), 0, segmentSize);
+        }
+        segments = grown;
+    }
+
+    private static MappedByteBuffer map(Path file, long position, long size) throws IOException {
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package uk.gov.verifiablelog.store.memoization;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link MemoizationStore} that stores Merkle Tree root hashes in memory for intermediate subtrees of any size,
+ * within a budget of bytes that can be changed while it is in use.
+ *
+ * When the budget is exceeded, the least recently used root hashes are evicted first. Each stored root hash is
+ * charged its length plus an estimate of the per-entry overhead of the map it is stored in. The store also counts
+ * its hits and misses, so that its effectiveness can be monitored. It is safe for use by multiple threads.
+ */
+public class BudgetedInMemory implements MemoizationStore {
+
+    /**
+     * The estimated number of bytes each stored root hash uses in addition to its length.
+     */
+    public static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final LinkedHashMap<Subtree, byte[]> data;
+    private long budgetBytes;
+    private long bytesUsed;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new instance of a {@link BudgetedInMemory} object.
+     * @param budgetBytes The maximum number of bytes to use for stored root hashes
+     */
+    public BudgetedInMemory(long budgetBytes) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("budgetBytes must not be negative");
+        }
+        this.data = new LinkedHashMap<>(16, 0.75f, true);
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Adds the root hash of a subtree to the set of known intermediate Merkle Tree root hashes stored in memory,
+     * evicting the least recently used root hashes if needed to stay within the budget.
+     * @param start The zero-based index of the first leaf in the subtree
+     * @param size The number of leaves in the subtree
+     * @param value The Merkle Tree root hash of the subtree
+     */
+    @Override
+    public synchronized void put(Integer start, Integer size, byte[] value) {
+        if (cost(value) > budgetBytes) {
+            return;
+        }
+        byte[] previous = data.put(new Subtree(start, size), value);
+        if (previous != null) {
+            bytesUsed -= cost(previous);
+        }
+        bytesUsed += cost(value);
+        evictToBudget();
+    }
+
+    /**
+     * Retrieves the root hash of a subtree from the set of known intermediate Merkle Tree root hashes
+     * if it exists in the in-memory store.
+     * @param start The zero-based index of the first leaf in the subtree
+     * @param size The number of leaves in the subtree
+     * @return The Merkle Tree root hash of the subtree if it exists in the in-memory store, else null.
+     */
+    @Override
+    public synchronized byte[] get(Integer start, Integer size) {
+        byte[] value = data.get(new Subtree(start, size));
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Changes the budget, evicting the least recently used root hashes if the store is now over it.
+     * @param budgetBytes The maximum number of bytes to use for stored root hashes
+     */
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("budgetBytes must not be negative");
+        }
+        this.budgetBytes = budgetBytes;
+        evictToBudget();
+    }
+
+    /**
+     * Gets the maximum number of bytes to use for stored root hashes.
+     * @return The budget in bytes
+     */
+    public synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Gets the number of bytes charged for the root hashes currently stored.
+     * @return The bytes used
+     */
+    public synchronized long getBytesUsed() {
+        return bytesUsed;
+    }
+
+    /**
+     * Gets the number of root hashes currently stored.
+     * @return The number of entries
+     */
+    public synchronized int size() {
+        return data.size();
+    }
+
+    /**
+     * Gets the number of calls to {@link #get(Integer, Integer)} that found a root hash.
+     * @return The number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of calls to {@link #get(Integer, Integer)} that did not find a root hash.
+     * @return The number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<Subtree, byte[]>> eldest = data.entrySet().iterator();
+        while (bytesUsed > budgetBytes && eldest.hasNext()) {
+            bytesUsed -= cost(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static long cost(byte[] value) {
+        return value.length + ENTRY_OVERHEAD_BYTES;
+    }
+}
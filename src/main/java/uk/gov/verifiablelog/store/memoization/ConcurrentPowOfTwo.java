@@ -0,0 +1,85 @@
+package uk.gov.verifiablelog.store.memoization;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link MemoizationStore} that stores Merkle Tree root hashes in memory for intermediate subtrees
+ * of a power of two in size, i.e. for subtrees of size 1, 2, 4, 8, 16 etc., and that is safe for use by
+ * many threads at once.
+ *
+ * Hashes are kept in fixed-size segments of atomic slots indexed by (level, start / size). Segments are allocated
+ * on first use and each slot is published once, so reads are wait-free and writes are lock-free.
+ */
+public class ConcurrentPowOfTwo implements MemoizationStore {
+
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int DIRECTORY_SIZE = 1 << (31 - 2 * SEGMENT_BITS);
+
+    // level -> top-level directory -> segment directory -> segment of hashes
+    private final AtomicReferenceArray<AtomicReferenceArray<AtomicReferenceArray<AtomicReferenceArray<byte[]>>>> levels;
+
+    /**
+     * Creates a new instance of a {@link ConcurrentPowOfTwo} object.
+     */
+    public ConcurrentPowOfTwo() {
+        levels = new AtomicReferenceArray<>(32);
+    }
+
+    /**
+     * Adds the root hash of a subtree to the set of known intermediate Merkle Tree root hashes stored in memory
+     * if the subtree is a power of two in size, otherwise does nothing.
+     * @param start The zero-based index of the first leaf in the subtree
+     * @param size The number of leaves in the subtree
+     * @param value The Merkle Tree root hash of the subtree
+     */
+    @Override
+    public void put(Integer start, Integer size, byte[] value) {
+        if (Integer.bitCount(size) != 1 || start % size != 0) {
+            return;
+        }
+        int index = start / size;
+        AtomicReferenceArray<AtomicReferenceArray<AtomicReferenceArray<byte[]>>> directory =
+                getOrCreate(levels, Integer.numberOfTrailingZeros(size), DIRECTORY_SIZE);
+        AtomicReferenceArray<AtomicReferenceArray<byte[]>> segments =
+                getOrCreate(directory, index >>> (2 * SEGMENT_BITS), SEGMENT_SIZE);
+        AtomicReferenceArray<byte[]> segment = getOrCreate(segments, (index >>> SEGMENT_BITS) & SEGMENT_MASK, SEGMENT_SIZE);
+        segment.compareAndSet(index & SEGMENT_MASK, null, value);
+    }
+
+    /**
+     * Retrieves the root hash of a subtree from the set of known intermediate Merkle Tree root hashes
+     * if it exists in the in-memory store.
+     * @param start The zero-based index of the first leaf in the subtree
+     * @param size The number of leaves in the subtree
+     * @return The Merkle Tree root hash of the subtree if it exists in the in-memory store, else null.
+     */
+    @Override
+    public byte[] get(Integer start, Integer size) {
+        if (Integer.bitCount(size) != 1 || start % size != 0) {
+            return null;
+        }
+        int index = start / size;
+        AtomicReferenceArray<AtomicReferenceArray<AtomicReferenceArray<byte[]>>> directory =
+                levels.get(Integer.numberOfTrailingZeros(size));
+        if (directory == null) {
+            return null;
+        }
+        AtomicReferenceArray<AtomicReferenceArray<byte[]>> segments = directory.get(index >>> (2 * SEGMENT_BITS));
+        if (segments == null) {
+            return null;
+        }
+        AtomicReferenceArray<byte[]> segment = segments.get((index >>> SEGMENT_BITS) & SEGMENT_MASK);
+        return segment == null ? null : segment.get(index & SEGMENT_MASK);
+    }
+
+    private static <T> AtomicReferenceArray<T> getOrCreate(AtomicReferenceArray<AtomicReferenceArray<T>> array, int i, int length) {
+        AtomicReferenceArray<T> existing = array.get(i);
+        if (existing != null) {
+            return existing;
+        }
+        AtomicReferenceArray<T> created = new AtomicReferenceArray<>(length);
+        return array.compareAndSet(i, null, created) ? created : array.get(i);
+    }
+}
@@ -0,0 +1,84 @@
+package uk.gov.verifiablelog.store.memoization;
+
+import java.util.TreeMap;
+
+/**
+ * A {@link MemoizationStore} that stores Merkle Tree root hashes in memory for intermediate subtrees of a power of
+ * two in size, from a minimum level of the tree upwards, i.e. for subtrees of size 2^L, 2^(L+1), 2^(L+2) etc.
+ *
+ * Storing from level L upwards uses about 2^L times less memory than storing every level, and each subtree that
+ * has to be recomputed costs at most 2^L leaf hashes. Above level L, the store can also sample the subtrees it
+ * keeps, keeping only every k-th subtree of each level: the subtrees of level L are then always kept, so a missing
+ * subtree at a higher level is rebuilt from stored subtrees without reading any leaves.
+ */
+public class InMemoryPowOfTwoFromLevel implements MemoizationStore {
+
+    private final int minSize;
+    private final int sampleEvery;
+    private TreeMap<Integer, TreeMap<Integer, byte[]>> data;
+
+    /**
+     * Creates a new instance of an {@link InMemoryPowOfTwoFromLevel} object that keeps every subtree from the
+     * minimum level upwards.
+     * @param minLevel The lowest level of the tree to store, where level 0 is the leaves
+     */
+    public InMemoryPowOfTwoFromLevel(int minLevel) {
+        this(minLevel, 1);
+    }
+
+    /**
+     * Creates a new instance of an {@link InMemoryPowOfTwoFromLevel} object.
+     * @param minLevel The lowest level of the tree to store, where level 0 is the leaves
+     * @param sampleEvery Above the minimum level, store only the subtrees whose position in their level is a
+     *                    multiple of this number
+     */
+    public InMemoryPowOfTwoFromLevel(int minLevel, int sampleEvery) {
+        if (minLevel < 0 || minLevel > 30) {
+            throw new IllegalArgumentException("minLevel must be between 0 and 30");
+        }
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be positive");
+        }
+        this.minSize = 1 << minLevel;
+        this.sampleEvery = sampleEvery;
+        this.data = new TreeMap<>();
+    }
+
+    /**
+     * Adds the root hash of a subtree to the set of known intermediate Merkle Tree root hashes stored in memory
+     * if the subtree is a power of two in size, is at or above the minimum level, and is sampled at its level,
+     * otherwise does nothing.
+     * @param start The zero-based index of the first leaf in the subtree
+     * @param size The number of leaves in the subtree
+     * @param value The Merkle Tree root hash of the subtree
+     */
+    @Override
+    public void put(Integer start, Integer size, byte[] value) {
+        if (size >= minSize && Integer.bitCount(size) == 1 && isSampled(start, size)) {
+            TreeMap<Integer, byte[]> sizeBucket = data.get(size);
+
+            if (sizeBucket == null) {
+                sizeBucket = new TreeMap<>();
+                data.put(size, sizeBucket);
+            }
+            sizeBucket.put(start, value);
+        }
+    }
+
+    /**
+     * Retrieves the root hash of a subtree from the set of known intermediate Merkle Tree root hashes
+     * if it exists in the in-memory store.
+     * @param start The zero-based index of the first leaf in the subtree
+     * @param size The number of leaves in the subtree
+     * @return The Merkle Tree root hash of the subtree if it exists in the in-memory store, else null.
+     */
+    @Override
+    public byte[] get(Integer start, Integer size) {
+        TreeMap<Integer, byte[]> sizeBucket = data.get(size);
+        return sizeBucket == null ? null : sizeBucket.get(start);
+    }
+
+    private boolean isSampled(int start, int size) {
+        return size == minSize || (start / size) % sampleEvery == 0;
+    }
+}
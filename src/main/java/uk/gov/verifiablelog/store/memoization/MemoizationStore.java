@@ -1,5 +1,9 @@
 package uk.gov.verifiablelog.store.memoization;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Defines the contract through which a consumer of a {@link MemoizationStore} can query and update a set of known
  * Merkle Tree root hashes for intermediate subtrees of a particular size and start index.
@@ -14,6 +18,18 @@ public interface MemoizationStore {
      */
     void put(Integer start, Integer size, byte[] value);
 
+    /**
+     * Adds the root hashes of many subtrees at once to the set of known intermediate Merkle Tree root hashes, if the
+     * implementation chooses to. Implementations backed by a remote or disk-based store should override this to write
+     * them in one request; the default adds each with {@link #put(Integer, Integer, byte[])}.
+     * @param values The Merkle Tree root hashes of the subtrees
+     */
+    default void putAll(Map<Subtree, byte[]> values) {
+        for (Map.Entry<Subtree, byte[]> value : values.entrySet()) {
+            put(value.getKey().getStart(), value.getKey().getSize(), value.getValue());
+        }
+    }
+
     /**
      * Retrieves the root hash of a subtree from the set of known intermediate Merkle Tree root hashes.
      * An implementation can return null for any start and size, even if an earlier {@link #put(Integer, Integer, byte[])}
@@ -23,4 +39,22 @@ public interface MemoizationStore {
      * @return The Merkle Tree root hash of the subtree if known, else null if not known
      */
     byte[] get(Integer start, Integer size);
+
+    /**
+     * Retrieves the root hashes of many subtrees at once from the set of known intermediate Merkle Tree root hashes.
+     * Implementations backed by a remote or disk-based store should override this to fetch them in one request; the
+     * default retrieves each with {@link #get(Integer, Integer)}.
+     * @param subtrees The subtrees whose root hashes are required
+     * @return The Merkle Tree root hashes of those subtrees that are known; subtrees not known are absent
+     */
+    default Map<Subtree, byte[]> getAll(Collection<Subtree> subtrees) {
+        Map<Subtree, byte[]> result = new HashMap<>();
+        for (Subtree subtree : subtrees) {
+            byte[] value = get(subtree.getStart(), subtree.getSize());
+            if (value != null) {
+                result.put(subtree, value);
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,58 @@
+package uk.gov.verifiablelog.store.memoization;
+
+/**
+ * Identifies an intermediate Merkle Tree subtree by the index of its first leaf and its number of leaves.
+ */
+public final class Subtree {
+
+    private final int start;
+    private final int size;
+
+    /**
+     * Creates a new instance of a {@link Subtree} object.
+     * @param start The zero-based index of the first leaf in the subtree
+     * @param size The number of leaves in the subtree
+     */
+    public Subtree(int start, int size) {
+        this.start = start;
+        this.size = size;
+    }
+
+    /**
+     * Gets the index of the first leaf in the subtree.
+     * @return The zero-based index of the first leaf in the subtree
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the number of leaves in the subtree.
+     * @return The number of leaves in the subtree
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Subtree)) {
+            return false;
+        }
+        Subtree other = (Subtree) o;
+        return start == other.start && size == other.size;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * start + size;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + start + "," + size + ")";
+    }
+}
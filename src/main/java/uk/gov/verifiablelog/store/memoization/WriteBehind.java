@@ -0,0 +1,216 @@
+package uk.gov.verifiablelog.store.memoization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link MemoizationStore} decorator that writes root hashes to a slow backing store in the background, so that
+ * computing a proof never waits for a write.
+ *
+ * Root hashes that have been put but not yet written are kept in memory and served by {@link #get(Integer, Integer)}
+ * until they are. A single background thread writes them to the backing store in batches, each with one
+ * {@link MemoizationStore#putAll(Map)}, in the order they were put. At most a fixed number of root hashes are kept
+ * waiting; when that many are, further puts are dropped, as the {@link MemoizationStore} contract allows. The
+ * backing store is used by the background thread and by the threads calling {@link #get(Integer, Integer)} at the
+ * same time, so it must be safe for use by multiple threads.
+ */
+public class WriteBehind implements MemoizationStore, AutoCloseable {
+
+    private final MemoizationStore backingStore;
+    private final int batchSize;
+    private final ConcurrentMap<Subtree, byte[]> pending;
+    private final BlockingQueue<Subtree> queue;
+    private final AtomicLong enqueued;
+    private final AtomicLong written;
+    private final AtomicLong dropped;
+    private final Thread writer;
+    // held to read while a put is queued, and to write while closing, so that no put is queued after close() flushes
+    private final ReadWriteLock closing;
+    private boolean closed;
+
+    /**
+     * Creates a new instance of a {@link WriteBehind} object and starts its background writer thread.
+     * @param backingStore The store to write root hashes to
+     * @param maxPending The maximum number of root hashes waiting to be written
+     * @param batchSize The maximum number of root hashes written in one batch
+     */
+    public WriteBehind(MemoizationStore backingStore, int maxPending, int batchSize) {
+        if (maxPending < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("maxPending and batchSize must be positive");
+        }
+        this.backingStore = backingStore;
+        this.batchSize = batchSize;
+        this.pending = new ConcurrentHashMap<>();
+        this.queue = new ArrayBlockingQueue<>(maxPending);
+        this.enqueued = new AtomicLong();
+        this.written = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.closing = new ReentrantReadWriteLock();
+        this.writer = new Thread(this::writeBatches, "memoization-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the root hash of a subtree to be written to the backing store, or drops it if too many root hashes
+     * are already waiting or the store has been closed.
+     * @param start The zero-based index of the first leaf in the subtree
+     * @param size The number of leaves in the subtree
+     * @param value The Merkle Tree root hash of the subtree
+     */
+    @Override
+    public void put(Integer start, Integer size, byte[] value) {
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                dropped.incrementAndGet();
+                return;
+            }
+            Subtree subtree = new Subtree(start, size);
+            // the root hash of a subtree never changes, so a hash already waiting need not be queued again
+            if (pending.putIfAbsent(subtree, value) != null) {
+                return;
+            }
+            if (queue.offer(subtree)) {
+                enqueued.incrementAndGet();
+            } else {
+                pending.remove(subtree);
+                dropped.incrementAndGet();
+            }
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the root hash of a subtree from the root hashes waiting to be written, or else from the backing
+     * store.
+     * @param start The zero-based index of the first leaf in the subtree
+     * @param size The number of leaves in the subtree
+     * @return The Merkle Tree root hash of the subtree if known, else null if not known
+     */
+    @Override
+    public byte[] get(Integer start, Integer size) {
+        byte[] value = pending.get(new Subtree(start, size));
+        return value != null ? value : backingStore.get(start, size);
+    }
+
+    /**
+     * Retrieves the root hashes of many subtrees from the root hashes waiting to be written, and any others from the
+     * backing store in one {@link MemoizationStore#getAll(Collection)}.
+     * @param subtrees The subtrees whose root hashes are required
+     * @return The Merkle Tree root hashes of those subtrees that are known; subtrees not known are absent
+     */
+    @Override
+    public Map<Subtree, byte[]> getAll(Collection<Subtree> subtrees) {
+        Map<Subtree, byte[]> result = new HashMap<>();
+        List<Subtree> notPending = new ArrayList<>();
+        for (Subtree subtree : subtrees) {
+            byte[] value = pending.get(subtree);
+            if (value != null) {
+                result.put(subtree, value);
+            } else {
+                notPending.add(subtree);
+            }
+        }
+        if (!notPending.isEmpty()) {
+            result.putAll(backingStore.getAll(notPending));
+        }
+        return result;
+    }
+
+    /**
+     * Waits until every root hash queued before the call has been written to the backing store.
+     */
+    public void flush() {
+        long target = enqueued.get();
+        synchronized (written) {
+            while (written.get() < target && writer.isAlive()) {
+                try {
+                    written.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of root hashes waiting to be written to the backing store.
+     * @return The number of pending root hashes
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Gets the number of root hashes that were dropped rather than written, because too many were waiting, the
+     * store was closed, or the backing store failed to write them.
+     * @return The number of dropped root hashes
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes all queued root hashes to the backing store and stops the background writer thread. Later puts are
+     * dropped, while gets are still served by the backing store.
+     */
+    @Override
+    public void close() {
+        closing.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        flush();
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeBatches() {
+        List<Subtree> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            Map<Subtree, byte[]> values = new LinkedHashMap<>();
+            for (Subtree subtree : batch) {
+                values.put(subtree, pending.get(subtree));
+            }
+            try {
+                backingStore.putAll(values);
+            } catch (RuntimeException e) {
+                dropped.addAndGet(batch.size());
+            }
+            for (Subtree subtree : batch) {
+                pending.remove(subtree);
+            }
+            synchronized (written) {
+                written.addAndGet(batch.size());
+                written.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package uk.gov.verifiablelog;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.gov.verifiablelog.store.memoization.InMemory;
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class AdmissionControllerTests {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void cheapRequests_runWhileExpensiveLaneIsFull() throws Exception {
+        AdmissionController controller = controller(1, 0);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> expensive = executor.submit(() -> controller.admit(100, () -> await(running, release)));
+        running.await();
+
+        assertThat(controller.admit(1, () -> "cheap"), is("cheap"));
+        assertThat(controller.auditProof(3, 8).size(), is(3));
+
+        release.countDown();
+        expensive.get();
+    }
+
+    @Test
+    public void expensiveRequests_areRejectedWhenTooManyAreWaiting() throws Exception {
+        AdmissionController controller = controller(1, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> first = executor.submit(() -> controller.admit(100, () -> await(running, release)));
+        running.await();
+        Future<String> second = executor.submit(() -> controller.admit(100, () -> "second"));
+        while (controller.getWaitingCount() < 1) {
+            Thread.sleep(1);
+        }
+
+        try {
+            controller.admit(100, () -> "third");
+            throw new AssertionError("expected the request to be rejected");
+        } catch (RejectedExecutionException e) {
+            assertThat(controller.getRejectedCount(), is(1L));
+        }
+
+        release.countDown();
+        first.get();
+        assertThat(second.get(), is("second"));
+        assertThat(controller.getExpensiveCount(), is(2L));
+    }
+
+    @Test
+    public void expensiveRequests_runNoMoreThanTheCapAtOnce() throws Exception {
+        AdmissionController controller = controller(2, 100);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(executor.submit(() -> controller.admit(100, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return running.decrementAndGet();
+            })));
+        }
+        for (Future<Integer> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(maxRunning.get(), lessThanOrEqualTo(2));
+        assertThat(controller.getExpensiveCount(), is(20L));
+    }
+
+    @Test
+    public void uncachedRootHash_goesToExpensiveLane() {
+        AdmissionController controller = controller(1, 0);
+
+        byte[] rootHash = controller.getSpecificRootHash(8);
+
+        assertThat(bytesToString(rootHash), is(bytesToString(makeVerifiableLog(leaves(8)).getSpecificRootHash(8))));
+        assertThat(controller.getExpensiveCount(), is(1L));
+    }
+
+    @Test
+    public void admittedRequest_reusesTheLookupsOfItsEstimate() {
+        AtomicInteger lookups = new AtomicInteger();
+        InMemory memoizationStore = new InMemory() {
+            @Override
+            public Map<Subtree, byte[]> getAll(Collection<Subtree> subtrees) {
+                lookups.incrementAndGet();
+                return super.getAll(subtrees);
+            }
+        };
+        VerifiableLog verifiableLog = makeVerifiableLog(leaves(8), memoizationStore);
+        verifiableLog.getCurrentRootHash();
+        AdmissionController controller = new AdmissionController(verifiableLog, 8, 1, 0);
+
+        List<byte[]> expected = verifiableLog.auditProof(3, 8);
+
+        lookups.set(0);
+        List<byte[]> auditProof = controller.auditProof(3, 8);
+
+        assertThat(bytesToString(auditProof), is(bytesToString(expected)));
+        assertThat(lookups.get(), is(1));
+    }
+
+    private static AdmissionController controller(int maxRunning, int maxWaiting) {
+        VerifiableLog verifiableLog = makeVerifiableLog(leaves(8));
+        return new AdmissionController(verifiableLog, 8, maxRunning, maxWaiting);
+    }
+
+    private static Object await(CountDownLatch running, CountDownLatch release) {
+        running.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaves.add(("leaf-" + i).getBytes());
+        }
+        return leaves;
+    }
+}
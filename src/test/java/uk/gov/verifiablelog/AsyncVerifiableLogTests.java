@@ -0,0 +1,162 @@
+package uk.gov.verifiablelog;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.gov.verifiablelog.store.AsyncMerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.ConcurrentPowOfTwo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class AsyncVerifiableLogTests {
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void asyncResults_matchSynchronousLog() {
+        List<byte[]> leaves = leaves(300);
+        VerifiableLog verifiableLog = makeVerifiableLog(leaves);
+        AsyncVerifiableLog asyncLog = new AsyncVerifiableLog(Util.sha256Instance(), new DelayedLeafStore(leaves, 0));
+
+        assertThat(bytesToString(asyncLog.getCurrentRootHash().join()), is(bytesToString(verifiableLog.getCurrentRootHash())));
+        for (int treeSize = 1; treeSize <= 300; treeSize += 23) {
+            assertThat(bytesToString(asyncLog.getSpecificRootHash(treeSize).join()), is(bytesToString(verifiableLog.getSpecificRootHash(treeSize))));
+            for (int leafIndex = 0; leafIndex < treeSize; leafIndex += 7) {
+                assertThat(bytesToString(asyncLog.auditProof(leafIndex, treeSize).join()), is(bytesToString(verifiableLog.auditProof(leafIndex, treeSize))));
+            }
+            for (int treeSize1 = 1; treeSize1 <= treeSize; treeSize1 += 11) {
+                assertThat(bytesToString(asyncLog.consistencyProof(treeSize1, treeSize).join()), is(bytesToString(verifiableLog.consistencyProof(treeSize1, treeSize))));
+            }
+        }
+    }
+
+    @Test
+    public void auditProof_fetchesRunsOfLeavesConcurrently() {
+        List<byte[]> leaves = leaves(64);
+        DelayedLeafStore leafStore = new DelayedLeafStore(leaves, 50);
+        AsyncVerifiableLog asyncLog = new AsyncVerifiableLog(Util.sha256Instance(), leafStore);
+
+        // the audit path of leaf 5 covers every leaf but itself, in the runs 0-4 and 6-63
+        List<byte[]> auditProof = asyncLog.auditProof(5, 64).join();
+
+        assertThat(bytesToString(auditProof), is(bytesToString(makeVerifiableLog(leaves).auditProof(5, 64))));
+        assertThat(leafStore.rangeCalls.get(), is(2));
+        assertThat(leafStore.maxOutstanding.get(), greaterThanOrEqualTo(2));
+    }
+
+    @Test
+    public void memoizedSubtrees_areNotFetched() {
+        List<byte[]> leaves = leaves(64);
+        DelayedLeafStore leafStore = new DelayedLeafStore(leaves, 0);
+        AsyncVerifiableLog asyncLog = new AsyncVerifiableLog(Util.sha256Instance(), leafStore, new ConcurrentPowOfTwo());
+
+        asyncLog.getSpecificRootHash(64).join();
+        int leavesFetched = leafStore.leavesFetched.get();
+        asyncLog.auditProof(5, 64).join();
+        asyncLog.consistencyProof(32, 64).join();
+
+        assertThat(leavesFetched, is(64));
+        assertThat(leafStore.leavesFetched.get(), is(64));
+    }
+
+    @Test
+    public void failedFetch_completesExceptionally() {
+        AsyncMerkleLeafStore failingStore = new AsyncMerkleLeafStore() {
+            @Override
+            public CompletableFuture<byte[]> getLeafValue(int leafIndex) {
+                CompletableFuture<byte[]> leafValue = new CompletableFuture<>();
+                leafValue.completeExceptionally(new IllegalStateException("unavailable"));
+                return leafValue;
+            }
+
+            @Override
+            public int totalLeaves() {
+                return 8;
+            }
+        };
+        AsyncVerifiableLog asyncLog = new AsyncVerifiableLog(Util.sha256Instance(), failingStore);
+
+        try {
+            asyncLog.auditProof(3, 8).join();
+            throw new AssertionError("expected the proof to fail");
+        } catch (CompletionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+    }
+
+    @Test
+    public void consistencyProof_rejectsEmptyFirstTree() {
+        AsyncVerifiableLog asyncLog = new AsyncVerifiableLog(Util.sha256Instance(), new DelayedLeafStore(leaves(8), 0));
+
+        try {
+            asyncLog.consistencyProof(0, 8).join();
+            throw new AssertionError("expected the proof to fail");
+        } catch (CompletionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        }
+    }
+
+    private static List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaves.add(("leaf-" + i).getBytes());
+        }
+        return leaves;
+    }
+
+    private class DelayedLeafStore implements AsyncMerkleLeafStore {
+        private final List<byte[]> leaves;
+        private final long delayMillis;
+        private final AtomicInteger rangeCalls = new AtomicInteger();
+        private final AtomicInteger leavesFetched = new AtomicInteger();
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger maxOutstanding = new AtomicInteger();
+
+        DelayedLeafStore(List<byte[]> leaves, long delayMillis) {
+            this.leaves = leaves;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public CompletableFuture<byte[]> getLeafValue(int leafIndex) {
+            return getLeafValues(leafIndex, leafIndex + 1).thenApply(leafValues -> leafValues.get(0));
+        }
+
+        @Override
+        public CompletableFuture<List<byte[]>> getLeafValues(int start, int end) {
+            rangeCalls.incrementAndGet();
+            maxOutstanding.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                leavesFetched.addAndGet(end - start);
+                outstanding.decrementAndGet();
+                return new ArrayList<>(leaves.subList(start, end));
+            }, executor);
+        }
+
+        @Override
+        public int totalLeaves() {
+            return leaves.size();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.DoNothing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class AuditProofCacheTests {
+    private final List<byte[]> leafValues = new ArrayList<>();
+    private final CountingLeafStore leafStore = new CountingLeafStore(leafValues);
+    private final AuditProofCache auditProofCache = new AuditProofCache(new VerifiableLog(Util.sha256Instance(), leafStore, new DoNothing()), 3);
+
+    @Test
+    public void auditProof_isSameAsAuditProofFromVerifiableLog_asLogGrows() {
+        VerifiableLog verifiableLog = makeVerifiableLog(leafValues);
+
+        for (int treeSize = 1; treeSize <= 300; treeSize++) {
+            leafValues.add(Integer.toString(treeSize).getBytes());
+            for (int leafIndex : new int[]{0, treeSize / 2, treeSize - 1}) {
+                assertThat(bytesToString(auditProofCache.auditProof(leafIndex, treeSize)),
+                        is(bytesToString(verifiableLog.auditProof(leafIndex, treeSize))));
+            }
+        }
+    }
+
+    @Test
+    public void auditProof_isSameAsAuditProofFromVerifiableLog_forSmallerTreeSize() {
+        addLeaves(300);
+        VerifiableLog verifiableLog = makeVerifiableLog(leafValues);
+
+        auditProofCache.auditProof(37, 300);
+
+        assertThat(bytesToString(auditProofCache.auditProof(37, 100)), is(bytesToString(verifiableLog.auditProof(37, 100))));
+        assertThat(bytesToString(auditProofCache.auditProof(37, 257)), is(bytesToString(verifiableLog.auditProof(37, 257))));
+    }
+
+    @Test
+    public void auditProof_onlyReadsNewLeaves_whenRefreshingCachedAuditProof() {
+        addLeaves(1024);
+
+        auditProofCache.auditProof(3, 1000);
+        assertThat(leafStore.leafReads, is(999));
+
+        leafStore.leafReads = 0;
+        auditProofCache.auditProof(3, 1001);
+        assertThat(leafStore.leafReads, is(1));
+
+        leafStore.leafReads = 0;
+        auditProofCache.auditProof(3, 1024);
+        assertThat(leafStore.leafReads, is(23));
+    }
+
+    @Test
+    public void auditProof_readsEachLeafOnce_whenRefreshedAfterEveryAppend() {
+        addLeaves(4096);
+        auditProofCache.auditProof(100, 200);
+
+        leafStore.leafReads = 0;
+        for (int treeSize = 201; treeSize <= 4096; treeSize++) {
+            auditProofCache.auditProof(100, treeSize);
+        }
+
+        assertThat(leafStore.leafReads, is(4096 - 200));
+    }
+
+    private void addLeaves(int count) {
+        for (int i = 0; i < count; i++) {
+            leafValues.add(Integer.toString(i).getBytes());
+        }
+    }
+
+    private static class CountingLeafStore implements MerkleLeafStore {
+        private final List<byte[]> leafValues;
+        private int leafReads;
+
+        CountingLeafStore(List<byte[]> leafValues) {
+            this.leafValues = leafValues;
+        }
+
+        @Override
+        public byte[] getLeafValue(int leafIndex) {
+            leafReads++;
+            return leafValues.get(leafIndex);
+        }
+
+        @Override
+        public int totalLeaves() {
+            return leafValues.size();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class LeafHashIndexTests {
+    @Test
+    public void should_findEveryAddedLeafHash_acrossResizes() {
+        LeafHashIndex index = new LeafHashIndex();
+        List<byte[]> leafHashes = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            byte[] leafHash = Util.leafHash(Integer.toString(i).getBytes(), Util.sha256Instance());
+            leafHashes.add(leafHash);
+            index.add(leafHash, i);
+        }
+
+        assertThat(index.size(), is(10000));
+        for (int i = 0; i < leafHashes.size(); i++) {
+            byte[] leafHash = leafHashes.get(i);
+            assertThat(index.indexOf(leafHash, candidate -> Arrays.equals(leafHashes.get(candidate), leafHash)), is(i));
+        }
+    }
+
+    @Test
+    public void should_returnLowestIndex_forDuplicateLeafHashes() {
+        LeafHashIndex index = new LeafHashIndex();
+        byte[] leafHash = Util.leafHash(new byte[]{0x01}, Util.sha256Instance());
+
+        index.add(leafHash, 7);
+        index.add(leafHash, 3);
+        index.add(leafHash, 5);
+
+        assertThat(index.indexOf(leafHash, candidate -> true), is(3));
+    }
+
+    @Test
+    public void should_returnMinusOne_whenNoCandidateIsConfirmed() {
+        LeafHashIndex index = new LeafHashIndex();
+        byte[] leafHash = Util.leafHash(new byte[]{0x01}, Util.sha256Instance());
+        index.add(leafHash, 0);
+
+        assertThat(index.indexOf(leafHash, candidate -> false), is(-1));
+        assertThat(index.indexOf(Util.leafHash(new byte[]{0x02}, Util.sha256Instance()), candidate -> true), is(-1));
+    }
+
+    @Test
+    public void catchUp_hashesEachLeafOnce_andOnlyUpToTheTreeSize() {
+        LeafHashIndex index = new LeafHashIndex();
+        AtomicInteger hashed = new AtomicInteger();
+        List<byte[]> leafHashes = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            leafHashes.add(Util.leafHash(Integer.toString(i).getBytes(), Util.sha256Instance()));
+        }
+
+        index.catchUp(2500, leafIndex -> {
+            hashed.incrementAndGet();
+            return leafHashes.get(leafIndex);
+        });
+        index.catchUp(1000, leafIndex -> {
+            throw new AssertionError("leaf " + leafIndex + " is already indexed");
+        });
+        index.catchUp(3000, leafIndex -> {
+            hashed.incrementAndGet();
+            return leafHashes.get(leafIndex);
+        });
+
+        assertThat(index.size(), is(3000));
+        assertThat(hashed.get(), is(3000));
+        byte[] leafHash = leafHashes.get(2999);
+        assertThat(index.indexOf(leafHash, candidate -> Arrays.equals(leafHashes.get(candidate), leafHash)), is(2999));
+    }
+}
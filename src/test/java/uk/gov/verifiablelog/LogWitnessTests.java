@@ -0,0 +1,66 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class LogWitnessTests {
+    @Test
+    public void rootHash_isSameAsVerifiableLogRootHash_asLeavesAreConsumed() {
+        List<byte[]> entries = new ArrayList<>();
+        VerifiableLog verifiableLog = makeVerifiableLog(entries, new InMemoryPowOfTwo());
+        LogWitness logWitness = new LogWitness();
+
+        assertThat(bytesToString(logWitness.getRootHash()), is(bytesToString(verifiableLog.getCurrentRootHash())));
+        for (int i = 0; i < 300; i++) {
+            entries.add(Integer.toString(i).getBytes());
+            logWitness.append(entries.get(i));
+
+            assertThat(logWitness.getTreeSize(), is(i + 1));
+            assertThat(logWitness.isValidTreeHead(new TreeHead(i + 1, verifiableLog.getCurrentRootHash())), is(true));
+        }
+    }
+
+    @Test
+    public void isValidTreeHead_returnsFalse_forWrongRootHash() {
+        LogWitness logWitness = new LogWitness();
+        logWitness.append(new byte[]{0});
+
+        assertThat(logWitness.isValidTreeHead(new TreeHead(1, new byte[32])), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void isValidTreeHead_throwsIllegalArgumentException_forTreeHeadOfOtherSize() {
+        LogWitness logWitness = new LogWitness();
+        logWitness.append(new byte[]{0});
+
+        logWitness.isValidTreeHead(new TreeHead(2, new byte[32]));
+    }
+
+    @Test
+    public void readFrom_restoresWitnessSavedByWriteTo() throws Exception {
+        List<byte[]> entries = new ArrayList<>();
+        LogWitness logWitness = new LogWitness();
+        for (int i = 0; i < 13; i++) {
+            entries.add(Integer.toString(i).getBytes());
+        }
+        logWitness.appendAll(entries.subList(0, 11));
+
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        logWitness.writeTo(saved);
+        LogWitness restoredWitness = LogWitness.readFrom(new ByteArrayInputStream(saved.toByteArray()));
+        restoredWitness.appendAll(entries.subList(11, 13));
+
+        assertThat(restoredWitness.getTreeSize(), is(13));
+        assertThat(bytesToString(restoredWitness.getRootHash()), is(bytesToString(makeVerifiableLog(entries).getCurrentRootHash())));
+    }
+}
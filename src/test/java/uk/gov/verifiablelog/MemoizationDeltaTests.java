@@ -0,0 +1,107 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.InMemory;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwo;
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class MemoizationDeltaTests {
+    @Test
+    public void subtrees_coverNewPerfectSubtreesAndRightEdge() {
+        assertThat(MemoizationDelta.subtrees(5, 7, 0), is(Arrays.asList(
+                new Subtree(5, 1), new Subtree(6, 1),
+                new Subtree(4, 2),
+                new Subtree(4, 3), new Subtree(0, 7))));
+        assertThat(MemoizationDelta.subtrees(4, 8, 1), is(Arrays.asList(
+                new Subtree(4, 2), new Subtree(6, 2), new Subtree(4, 4), new Subtree(0, 8))));
+        assertThat(MemoizationDelta.subtrees(8, 8, 0).size(), is(0));
+    }
+
+    @Test
+    public void appliedDelta_letsReplicaComputeProofsWithoutReadingLeaves() throws Exception {
+        List<byte[]> leaves = leaves(1000);
+        VerifiableLog primary = makeVerifiableLog(leaves, new InMemoryPowOfTwo());
+        InMemory replicaStore = new InMemory();
+        AtomicInteger replicaLeafReads = new AtomicInteger();
+        VerifiableLog replica = new VerifiableLog(Util.sha256Instance(), countingLeafStore(leaves, replicaLeafReads), replicaStore);
+
+        replicate(primary, 0, 600, replicaStore);
+        replicate(primary, 600, 1000, replicaStore);
+
+        assertThat(bytesToString(replica.getSpecificRootHash(1000)), is(bytesToString(primary.getCurrentRootHash())));
+        assertThat(bytesToString(replica.getSpecificRootHash(600)), is(bytesToString(primary.getSpecificRootHash(600))));
+        for (int leafIndex = 0; leafIndex < 1000; leafIndex += 37) {
+            assertThat(bytesToString(replica.auditProof(leafIndex, 1000)), is(bytesToString(primary.auditProof(leafIndex, 1000))));
+        }
+        assertThat(bytesToString(replica.consistencyProof(600, 1000)), is(bytesToString(primary.consistencyProof(600, 1000))));
+        assertThat(replicaLeafReads.get(), is(0));
+    }
+
+    @Test
+    public void deltaAboveMinLevel_containsOnlyLargerSubtrees() throws Exception {
+        VerifiableLog primary = makeVerifiableLog(leaves(64));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int written = MemoizationDelta.write(primary, 0, 64, 3, out);
+
+        assertThat(written, is(8 + 4 + 2 + 1));
+        assertThat(out.size(), is(15 + written * 32));
+    }
+
+    @Test(expected = EOFException.class)
+    public void apply_rejectsTruncatedDelta() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemoizationDelta.write(makeVerifiableLog(leaves(10)), 0, 10, out);
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+
+        MemoizationDelta.apply(new ByteArrayInputStream(truncated), new InMemory());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void apply_rejectsOtherData() throws Exception {
+        MemoizationDelta.apply(new ByteArrayInputStream(new byte[32]), new InMemory());
+    }
+
+    private static void replicate(VerifiableLog primary, int treeSize1, int treeSize2, InMemory replicaStore) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = MemoizationDelta.write(primary, treeSize1, treeSize2, out);
+        assertThat(MemoizationDelta.apply(new ByteArrayInputStream(out.toByteArray()), replicaStore), is(written));
+    }
+
+    private static List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaves.add(new byte[]{(byte) i, (byte) (i >> 8)});
+        }
+        return leaves;
+    }
+
+    private static MerkleLeafStore countingLeafStore(List<byte[]> leaves, AtomicInteger leafReads) {
+        return new MerkleLeafStore() {
+            @Override
+            public byte[] getLeafValue(int leafIndex) {
+                leafReads.incrementAndGet();
+                return leaves.get(leafIndex);
+            }
+
+            @Override
+            public int totalLeaves() {
+                return leaves.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,183 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.quicktheories.quicktheories.QuickTheory.qt;
+import static org.quicktheories.quicktheories.generators.SourceDSL.integers;
+import static org.quicktheories.quicktheories.generators.SourceDSL.lists;
+import static org.quicktheories.quicktheories.generators.SourceDSL.strings;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class ProofCodecTests {
+    private final List<byte[]> entries = entries(13);
+    private final VerifiableLog verifiableLog = makeVerifiableLog(entries);
+
+    @Test
+    public void auditProof_roundTripsThroughBufferAndStream() throws Exception {
+        List<byte[]> auditProof = verifiableLog.auditProof(5, 13);
+
+        ByteBuffer buffer = ByteBuffer.allocate(ProofCodec.encodedAuditProofLength(auditProof));
+        ProofCodec.writeAuditProof(buffer, 13, 5, auditProof);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ProofCodec.writeAuditProof(stream, 13, 5, auditProof);
+
+        assertThat(buffer.hasRemaining(), is(false));
+        assertThat(bytesToString(stream.toByteArray()), is(bytesToString(buffer.array())));
+        assertThat(buffer.array().length, is(8 + 8 + 2 + auditProof.size() * 33));
+
+        buffer.flip();
+        ProofCodec.EncodedAuditProof decoded = ProofCodec.readAuditProof(buffer);
+        assertThat(decoded.getTreeSize(), is(13));
+        assertThat(decoded.getLeafIndex(), is(5));
+        assertThat(bytesToString(copy(decoded.getAuditPath())), is(bytesToString(auditProof)));
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    public void consistencyProof_roundTripsThroughBuffer() {
+        List<byte[]> consistencyProof = verifiableLog.consistencyProof(6, 13);
+
+        ByteBuffer buffer = ByteBuffer.allocate(ProofCodec.encodedConsistencyProofLength(consistencyProof));
+        ProofCodec.writeConsistencyProof(buffer, 6, 13, consistencyProof);
+        buffer.flip();
+        ProofCodec.EncodedConsistencyProof decoded = ProofCodec.readConsistencyProof(buffer);
+
+        assertThat(decoded.getTreeSize1(), is(6));
+        assertThat(decoded.getTreeSize2(), is(13));
+        assertThat(bytesToString(copy(decoded.getConsistencyPath())), is(bytesToString(consistencyProof)));
+    }
+
+    @Test
+    public void treeHead_roundTripsThroughBuffer() {
+        TreeHead treeHead = new TreeHead(13, verifiableLog.getCurrentRootHash());
+
+        ByteBuffer buffer = ByteBuffer.allocate(ProofCodec.encodedTreeHeadLength(treeHead));
+        ProofCodec.writeTreeHead(buffer, treeHead);
+        buffer.flip();
+        TreeHead decoded = ProofCodec.readTreeHead(buffer);
+
+        assertThat(decoded.getTreeSize(), is(13));
+        assertThat(bytesToString(decoded.getRootHash()), is(bytesToString(treeHead.getRootHash())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readAuditProof_throwsIllegalArgumentException_forTruncatedProof() {
+        List<byte[]> auditProof = verifiableLog.auditProof(5, 13);
+        ByteBuffer buffer = ByteBuffer.allocate(ProofCodec.encodedAuditProofLength(auditProof));
+        ProofCodec.writeAuditProof(buffer, 13, 5, auditProof);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+
+        ProofCodec.readAuditProof(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void isValidAuditProof_throwsIllegalArgumentException_forTruncatedBuffer() {
+        List<byte[]> auditProof = verifiableLog.auditProof(5, 13);
+        ByteBuffer buffer = ByteBuffer.allocate(ProofCodec.encodedAuditProofLength(auditProof));
+        ProofCodec.writeAuditProof(buffer, 13, 5, auditProof);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 10);
+
+        VerifiableLogVerification.isValidAuditProof(verifiableLog.getCurrentRootHash(), buffer, entries.get(5));
+    }
+
+    @Test
+    public void isValidAuditProof_returnsFalse_forPathOfWrongLength() {
+        List<byte[]> auditProof = verifiableLog.auditProof(5, 13);
+        byte[] rootHash = verifiableLog.getCurrentRootHash();
+
+        assertThat(VerifiableLogVerification.isValidAuditProof(rootHash, encodeAuditProof(13, 5, auditProof.subList(1, auditProof.size())), entries.get(5)), is(false));
+        List<byte[]> longAuditProof = new ArrayList<>(auditProof);
+        longAuditProof.add(rootHash);
+        assertThat(VerifiableLogVerification.isValidAuditProof(rootHash, encodeAuditProof(13, 5, longAuditProof), entries.get(5)), is(false));
+    }
+
+    @Test
+    public void isValidAuditProof_returnsFalse_forLeafOutsideTree() {
+        byte[] rootHash = verifiableLog.getCurrentRootHash();
+
+        assertThat(VerifiableLogVerification.isValidAuditProof(rootHash, encodeAuditProof(0, 0, new ArrayList<>()), entries.get(0)), is(false));
+        assertThat(VerifiableLogVerification.isValidAuditProof(rootHash, encodeAuditProof(13, 13, verifiableLog.auditProof(12, 13)), entries.get(12)), is(false));
+    }
+
+    @Test
+    public void isValidConsistencyProof_returnsFalse_forPathOfWrongLengthOrSizes() {
+        List<byte[]> consistencyProof = verifiableLog.consistencyProof(6, 13);
+        byte[] oldRoot = verifiableLog.getSpecificRootHash(6);
+        byte[] newRoot = verifiableLog.getCurrentRootHash();
+
+        assertThat(VerifiableLogVerification.isValidConsistencyProof(oldRoot, newRoot, encodeConsistencyProof(6, 13, consistencyProof.subList(1, consistencyProof.size()))), is(false));
+        List<byte[]> longConsistencyProof = new ArrayList<>(consistencyProof);
+        longConsistencyProof.add(newRoot);
+        assertThat(VerifiableLogVerification.isValidConsistencyProof(oldRoot, newRoot, encodeConsistencyProof(6, 13, longConsistencyProof)), is(false));
+        assertThat(VerifiableLogVerification.isValidConsistencyProof(oldRoot, newRoot, encodeConsistencyProof(0, 13, consistencyProof)), is(false));
+        assertThat(VerifiableLogVerification.isValidConsistencyProof(newRoot, oldRoot, encodeConsistencyProof(13, 6, consistencyProof)), is(false));
+    }
+
+    @Test
+    public void property_canVerifyEncodedProofs() {
+        qt().forAll(lists().allListsOf(strings().numeric()).ofSizeBetween(1, 1000), integers().between(0, 999), integers().between(1, 1000))
+                .assuming((entries, leafIndex, treeSize1) -> leafIndex < entries.size() && treeSize1 <= entries.size())
+                .checkAssert((entryStrings, leafIndex, treeSize1) -> {
+                    List<byte[]> entries = entryStrings.stream().map(String::getBytes).collect(toList());
+                    VerifiableLog verifiableLog = makeVerifiableLog(entries);
+                    int treeSize = entries.size();
+                    byte[] rootHash = verifiableLog.getCurrentRootHash();
+
+                    List<byte[]> auditProof = verifiableLog.auditProof(leafIndex, treeSize);
+                    ByteBuffer encodedAuditProof = ByteBuffer.allocateDirect(ProofCodec.encodedAuditProofLength(auditProof));
+                    ProofCodec.writeAuditProof(encodedAuditProof, treeSize, leafIndex, auditProof);
+                    encodedAuditProof.flip();
+
+                    List<byte[]> consistencyProof = verifiableLog.consistencyProof(treeSize1, treeSize);
+                    ByteBuffer encodedConsistencyProof = ByteBuffer.allocate(ProofCodec.encodedConsistencyProofLength(consistencyProof));
+                    ProofCodec.writeConsistencyProof(encodedConsistencyProof, treeSize1, treeSize, consistencyProof);
+                    encodedConsistencyProof.flip();
+
+                    assertThat(VerifiableLogVerification.isValidAuditProof(rootHash, encodedAuditProof, entries.get(leafIndex)), is(true));
+                    assertThat(VerifiableLogVerification.isValidConsistencyProof(verifiableLog.getSpecificRootHash(treeSize1), rootHash, encodedConsistencyProof), is(true));
+                });
+    }
+
+    private static ByteBuffer encodeAuditProof(int treeSize, int leafIndex, List<byte[]> auditProof) {
+        ByteBuffer buffer = ByteBuffer.allocate(ProofCodec.encodedAuditProofLength(auditProof));
+        ProofCodec.writeAuditProof(buffer, treeSize, leafIndex, auditProof);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer encodeConsistencyProof(int treeSize1, int treeSize2, List<byte[]> consistencyProof) {
+        ByteBuffer buffer = ByteBuffer.allocate(ProofCodec.encodedConsistencyProofLength(consistencyProof));
+        ProofCodec.writeConsistencyProof(buffer, treeSize1, treeSize2, consistencyProof);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static List<byte[]> entries(int count) {
+        List<byte[]> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(Integer.toString(i).getBytes());
+        }
+        return entries;
+    }
+
+    private static List<byte[]> copy(List<ByteBuffer> hashes) {
+        List<byte[]> copies = new ArrayList<>();
+        for (ByteBuffer hash : hashes) {
+            byte[] copy = new byte[hash.remaining()];
+            hash.duplicate().get(copy);
+            copies.add(copy);
+        }
+        return copies;
+    }
+}
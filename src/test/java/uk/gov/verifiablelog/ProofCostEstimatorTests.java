@@ -0,0 +1,87 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+public class ProofCostEstimatorTests {
+    @Test
+    public void withoutMemoizationStore_everyLeafIsCounted() {
+        ProofCostEstimator estimator = new ProofCostEstimator(TestUtil.makeVerifiableLog(leaves(1000)));
+
+        assertThat(estimator.rootHashCost(1000), is(1000L));
+        assertThat(estimator.auditProofCost(0, 1000), is(999L));
+        assertThat(estimator.consistencyProofCost(1, 1000), is(999L));
+    }
+
+    @Test
+    public void fullyMemoizedTree_costsNothing() {
+        InMemoryPowOfTwo memoizationStore = new InMemoryPowOfTwo();
+        VerifiableLog verifiableLog = TestUtil.makeVerifiableLog(leaves(1024), memoizationStore);
+        verifiableLog.getCurrentRootHash();
+        ProofCostEstimator estimator = new ProofCostEstimator(verifiableLog);
+
+        assertThat(estimator.rootHashCost(1024), is(0L));
+        assertThat(estimator.auditProofCost(17, 1024), is(0L));
+        assertThat(estimator.consistencyProofCost(512, 1024), is(0L));
+    }
+
+    @Test
+    public void estimates_areExactWithinLookupBudgetAndNeverBelowRealCost() {
+        List<byte[]> leaves = leaves(1000);
+        for (int maxLookups : new int[]{0, 16, ProofCostEstimator.DEFAULT_MAX_LOOKUPS, 1 << 16}) {
+            for (int treeSize1 = 1; treeSize1 <= 1000; treeSize1 += 111) {
+                InMemoryPowOfTwo memoizationStore = new InMemoryPowOfTwo();
+                AtomicInteger leafReads = new AtomicInteger();
+                VerifiableLog verifiableLog = new VerifiableLog(Util.sha256Instance(), countingLeafStore(leaves, leafReads), memoizationStore);
+                verifiableLog.getSpecificRootHash(treeSize1);
+                ProofCostEstimator estimator = new ProofCostEstimator(verifiableLog, maxLookups);
+
+                long estimate = estimator.consistencyProofCost(treeSize1, 1000);
+                leafReads.set(0);
+                verifiableLog.consistencyProof(treeSize1, 1000);
+
+                assertThat(estimate, greaterThanOrEqualTo((long) leafReads.get()));
+                if (maxLookups == 1 << 16) {
+                    assertThat(estimate, is((long) leafReads.get()));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void consistencyProofCost_rejectsEmptyFirstTree() {
+        new ProofCostEstimator(TestUtil.makeVerifiableLog(leaves(10))).consistencyProofCost(0, 10);
+    }
+
+    private static List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaves.add(("leaf-" + i).getBytes());
+        }
+        return leaves;
+    }
+
+    private static MerkleLeafStore countingLeafStore(List<byte[]> leaves, AtomicInteger leafReads) {
+        return new MerkleLeafStore() {
+            @Override
+            public byte[] getLeafValue(int leafIndex) {
+                leafReads.incrementAndGet();
+                return leaves.get(leafIndex);
+            }
+
+            @Override
+            public int totalLeaves() {
+                return leaves.size();
+            }
+        };
+    }
+}
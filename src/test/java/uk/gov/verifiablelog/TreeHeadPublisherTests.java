@@ -0,0 +1,200 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class TreeHeadPublisherTests {
+    private List<byte[]> leafValues;
+    private AtomicInteger leafReads;
+    private VerifiableLog verifiableLog;
+    private TreeHeadPublisher publisher;
+
+    @Before
+    public void setUp() {
+        leafValues = new ArrayList<>();
+        leafReads = new AtomicInteger();
+        verifiableLog = new VerifiableLog(Util.sha256Instance(), new MerkleLeafStore() {
+            @Override
+            public byte[] getLeafValue(int leafIndex) {
+                leafReads.incrementAndGet();
+                return leafValues.get(leafIndex);
+            }
+
+            @Override
+            public int totalLeaves() {
+                return leafValues.size();
+            }
+        });
+        publisher = new TreeHeadPublisher(verifiableLog, Runnable::run);
+    }
+
+    @Test
+    public void refresh_computesRootOncePerGrowth() {
+        append(4);
+        publisher.refresh();
+        publisher.refresh();
+        publisher.refresh();
+
+        assertThat(leafReads.get(), is(4));
+        assertThat(publisher.getLatestTreeHead().getTreeSize(), is(4));
+        assertThat(bytesToString(publisher.getLatestTreeHead().getRootHash()), is(bytesToString(verifiableLog.getSpecificRootHash(4))));
+    }
+
+    @Test
+    public void subscriber_isSentLatestTreeHeadOnRequest() {
+        append(3);
+        publisher.refresh();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        assertThat(subscriber.treeSizes.size(), is(0));
+
+        subscriber.subscription.request(1);
+
+        assertThat(subscriber.treeSizes, is(sizes(3)));
+    }
+
+    @Test
+    public void slowSubscriber_onlySeesLatestTreeHead() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        for (int i = 0; i < 5; i++) {
+            append(1);
+            publisher.refresh();
+        }
+
+        subscriber.subscription.request(10);
+        append(1);
+        publisher.refresh();
+
+        assertThat(subscriber.treeSizes, is(sizes(5, 6)));
+    }
+
+    @Test
+    public void cancelledSubscriber_isSentNothingFurther() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        append(1);
+        publisher.refresh();
+
+        subscriber.subscription.cancel();
+        append(1);
+        publisher.refresh();
+
+        assertThat(subscriber.treeSizes, is(sizes(1)));
+    }
+
+    @Test
+    public void close_completesSubscribers() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        publisher.close();
+
+        assertThat(subscriber.completed, is(true));
+    }
+
+    @Test
+    public void nonPositiveRequest_signalsError() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+    }
+
+    @Test
+    public void subscriberThrowingFromOnNext_isCancelledAndSentError() {
+        RecordingSubscriber throwing = new RecordingSubscriber() {
+            @Override
+            public void onNext(TreeHead treeHead) {
+                throw new IllegalStateException("subscriber failed");
+            }
+        };
+        RecordingSubscriber other = new RecordingSubscriber();
+        publisher.subscribe(throwing);
+        publisher.subscribe(other);
+        throwing.subscription.request(Long.MAX_VALUE);
+        other.subscription.request(Long.MAX_VALUE);
+
+        append(1);
+        publisher.refresh();
+        append(1);
+        publisher.refresh();
+
+        assertThat(throwing.error, instanceOf(IllegalStateException.class));
+        assertThat(other.treeSizes, is(sizes(1, 2)));
+    }
+
+    @Test
+    public void subscriberThrowingFromOnComplete_doesNotStopOthersCompleting() {
+        RecordingSubscriber throwing = new RecordingSubscriber() {
+            @Override
+            public void onComplete() {
+                throw new IllegalStateException("subscriber failed");
+            }
+        };
+        RecordingSubscriber other = new RecordingSubscriber();
+        publisher.subscribe(throwing);
+        publisher.subscribe(other);
+
+        publisher.close();
+
+        assertThat(throwing.error, is((Throwable) null));
+        assertThat(other.completed, is(true));
+    }
+
+    private void append(int count) {
+        for (int i = 0; i < count; i++) {
+            leafValues.add(new byte[]{(byte) leafValues.size()});
+        }
+    }
+
+    private static List<Integer> sizes(Integer... treeSizes) {
+        List<Integer> result = new ArrayList<>();
+        for (Integer treeSize : treeSizes) {
+            result.add(treeSize);
+        }
+        return result;
+    }
+
+    private static class RecordingSubscriber implements TreeHeadPublisher.Subscriber {
+        TreeHeadPublisher.Subscription subscription;
+        final List<Integer> treeSizes = new ArrayList<>();
+        boolean completed;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(TreeHeadPublisher.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(TreeHead treeHead) {
+            treeSizes.add(treeHead.getTreeSize());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
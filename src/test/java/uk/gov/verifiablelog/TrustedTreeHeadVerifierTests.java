@@ -0,0 +1,65 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class TrustedTreeHeadVerifierTests {
+    private final List<byte[]> entries = new ArrayList<>();
+    private final VerifiableLog verifiableLog = makeVerifiableLog(entries);
+
+    public TrustedTreeHeadVerifierTests() {
+        for (int i = 0; i < 300; i++) {
+            entries.add(Integer.toString(i).getBytes());
+        }
+    }
+
+    @Test
+    public void isValidAuditProof_acceptsEveryValidAuditProof() {
+        TrustedTreeHeadVerifier verifier = new TrustedTreeHeadVerifier(new TreeHead(300, verifiableLog.getCurrentRootHash()));
+
+        for (int leafIndex = 0; leafIndex < 300; leafIndex++) {
+            assertThat(verifier.isValidAuditProof(leafIndex, verifiableLog.auditProof(leafIndex, 300), entries.get(leafIndex)), is(true));
+        }
+    }
+
+    @Test
+    public void isValidAuditProof_rejectsWrongLeafData_evenWhenNodesAreTrusted() {
+        TrustedTreeHeadVerifier verifier = new TrustedTreeHeadVerifier(new TreeHead(300, verifiableLog.getCurrentRootHash()));
+        assertThat(verifier.isValidAuditProof(10, verifiableLog.auditProof(10, 300), entries.get(10)), is(true));
+
+        assertThat(verifier.isValidAuditProof(11, verifiableLog.auditProof(11, 300), entries.get(12)), is(false));
+        assertThat(verifier.isValidAuditProof(10, verifiableLog.auditProof(10, 300), entries.get(11)), is(false));
+    }
+
+    @Test
+    public void isValidAuditProof_stopsAtFirstTrustedNode() {
+        TrustedTreeHeadVerifier verifier = new TrustedTreeHeadVerifier(new TreeHead(300, verifiableLog.getCurrentRootHash()));
+        assertThat(verifier.isValidAuditProof(10, verifiableLog.auditProof(10, 300), entries.get(10)), is(true));
+
+        // leaves 8 to 15 share the upper part of their audit proofs with leaf 10, so it is never looked at
+        List<byte[]> auditProof = verifiableLog.auditProof(9, 300);
+        for (int i = 3; i < auditProof.size(); i++) {
+            auditProof.set(i, new byte[32]);
+        }
+        assertThat(verifier.isValidAuditProof(9, auditProof, entries.get(9)), is(true));
+        assertThat(new TrustedTreeHeadVerifier(new TreeHead(300, verifiableLog.getCurrentRootHash())).isValidAuditProof(9, auditProof, entries.get(9)), is(false));
+    }
+
+    @Test
+    public void isValidAuditProof_rejectsAuditProofOfWrongLength() {
+        TrustedTreeHeadVerifier verifier = new TrustedTreeHeadVerifier(new TreeHead(300, verifiableLog.getCurrentRootHash()));
+
+        List<byte[]> auditProof = verifiableLog.auditProof(10, 300);
+        auditProof.remove(auditProof.size() - 1);
+
+        assertThat(verifier.isValidAuditProof(10, auditProof, entries.get(10)), is(false));
+        assertThat(verifier.trustedNodeCount(), is(1));
+    }
+}
@@ -1,6 +1,10 @@
 package uk.gov.verifiablelog;
 
 import org.junit.Test;
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
@@ -22,4 +26,22 @@ public class UtilTests {
         assertThat(Util.k(9), is(8));
         assertThat(Util.k(35009563), is(33554432));
     }
+
+    @Test
+    public void testAuditPathSubtreesAreCalculatedCorrectly() {
+        assertThat(Util.auditPathSubtrees(0, 1).size(), is(0));
+        assertThat(Util.auditPathSubtrees(0, 8), is(Arrays.asList(new Subtree(1, 1), new Subtree(2, 2), new Subtree(4, 4))));
+        assertThat(Util.auditPathSubtrees(5, 8), is(Arrays.asList(new Subtree(4, 1), new Subtree(6, 2), new Subtree(0, 4))));
+        assertThat(Util.auditPathSubtrees(1, 5), is(Arrays.asList(new Subtree(0, 1), new Subtree(2, 2), new Subtree(4, 1))));
+    }
+
+    @Test
+    public void testLeafHashOfBufferMatchesLeafHashOfArrayAndKeepsPosition() {
+        byte[] leafData = {0x10, 0x20, 0x30, 0x40};
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{0x7f, 0x10, 0x20, 0x30, 0x40, 0x7f});
+        buffer.position(1).limit(5);
+
+        assertThat(Util.leafHash(buffer, Util.sha256Instance()), is(Util.leafHash(leafData, Util.sha256Instance())));
+        assertThat(buffer.position(), is(1));
+    }
 }
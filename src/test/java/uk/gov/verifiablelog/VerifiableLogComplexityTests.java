@@ -0,0 +1,270 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.BudgetedInMemory;
+import uk.gov.verifiablelog.store.memoization.ConcurrentPowOfTwo;
+import uk.gov.verifiablelog.store.memoization.InMemory;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwo;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwoNoLeaves;
+import uk.gov.verifiablelog.store.memoization.MemoizationStore;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Counts leaf reads, hash computations and memoization store operations for each public operation of a warm
+ * {@link VerifiableLog} at large tree sizes, and checks that they grow logarithmically with the tree size. These
+ * tests guard against changes that quietly turn a logarithmic path into a linear one.
+ */
+@RunWith(Parameterized.class)
+public class VerifiableLogComplexityTests {
+
+    private static final int TREE_SIZE = (1 << 18) - 3;
+    private static final int LOG_TREE_SIZE = 32 - Integer.numberOfLeadingZeros(TREE_SIZE);
+    private static final int SAMPLES = 50;
+
+    // the number of operations allowed per level of the tree
+    private static final int PER_LEVEL = 4;
+
+    private final Supplier<MemoizationStore> memoizationStoreSupplier;
+
+    private Counters counters;
+    private int totalLeaves;
+    private VerifiableLog verifiableLog;
+    private Random random;
+
+    public VerifiableLogComplexityTests(String name, Supplier<MemoizationStore> memoizationStoreSupplier) {
+        this.memoizationStoreSupplier = memoizationStoreSupplier;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{
+                {"InMemory", (Supplier<MemoizationStore>) InMemory::new},
+                {"InMemoryPowOfTwo", (Supplier<MemoizationStore>) InMemoryPowOfTwo::new},
+                {"InMemoryPowOfTwoNoLeaves", (Supplier<MemoizationStore>) InMemoryPowOfTwoNoLeaves::new},
+                {"ConcurrentPowOfTwo", (Supplier<MemoizationStore>) ConcurrentPowOfTwo::new},
+                {"BudgetedInMemory", (Supplier<MemoizationStore>) () -> new BudgetedInMemory(Long.MAX_VALUE)}
+        });
+    }
+
+    @Before
+    public void beforeEach() throws NoSuchAlgorithmException {
+        counters = new Counters();
+        totalLeaves = TREE_SIZE;
+        verifiableLog = new VerifiableLog(new CountingMessageDigest(counters.hashes),
+                new CountingLeafStore(counters.leafReads, () -> totalLeaves),
+                new CountingMemoizationStore(counters.memoOperations, memoizationStoreSupplier.get()));
+        random = new Random(TREE_SIZE);
+
+        verifiableLog.getCurrentRootHash();
+    }
+
+    @Test
+    public void coldRootHash_isLinear() throws NoSuchAlgorithmException {
+        Counters cold = new Counters();
+        VerifiableLog coldLog = new VerifiableLog(new CountingMessageDigest(cold.hashes),
+                new CountingLeafStore(cold.leafReads, () -> TREE_SIZE),
+                new CountingMemoizationStore(cold.memoOperations, memoizationStoreSupplier.get()));
+
+        coldLog.getCurrentRootHash();
+
+        // every leaf is hashed, which also shows that the counters see the work being done
+        assertThat(cold.hashes.get(), greaterThanOrEqualTo((long) TREE_SIZE));
+        assertThat(cold.leafReads.get(), lessThanOrEqualTo((long) TREE_SIZE));
+        assertThat(cold.hashes.get(), lessThanOrEqualTo(2L * TREE_SIZE));
+        assertThat(cold.memoOperations.get(), lessThanOrEqualTo(4L * TREE_SIZE));
+    }
+
+    @Test
+    public void auditProof_isLogarithmic() {
+        for (int i = 0; i < SAMPLES; i++) {
+            int leafIndex = random.nextInt(TREE_SIZE);
+            assertLogarithmic(() -> verifiableLog.auditProof(leafIndex, TREE_SIZE));
+        }
+    }
+
+    @Test
+    public void consistencyProof_isLogarithmic() {
+        for (int i = 0; i < SAMPLES; i++) {
+            int previousTreeSize = 1 + random.nextInt(TREE_SIZE);
+            assertLogarithmic(() -> verifiableLog.consistencyProof(previousTreeSize, TREE_SIZE));
+        }
+    }
+
+    @Test
+    public void specificRootHash_isLogarithmic() {
+        for (int i = 0; i < SAMPLES; i++) {
+            int treeSize = 1 + random.nextInt(TREE_SIZE);
+            assertLogarithmic(() -> verifiableLog.getSpecificRootHash(treeSize));
+        }
+    }
+
+    @Test
+    public void currentRootHash_afterAppend_isLogarithmic() {
+        for (int i = 0; i < SAMPLES; i++) {
+            totalLeaves++;
+            assertLogarithmic(verifiableLog::getCurrentRootHash);
+        }
+    }
+
+    @Test
+    public void rangeProof_isLogarithmic() {
+        for (int i = 0; i < SAMPLES; i++) {
+            int begin = random.nextInt(TREE_SIZE - 1);
+            int end = begin + 1 + random.nextInt(TREE_SIZE - begin);
+            assertLogarithmic(() -> verifiableLog.rangeProof(begin, end, TREE_SIZE));
+        }
+    }
+
+    @Test
+    public void proofBundle_isLogarithmic() {
+        for (int i = 0; i < SAMPLES; i++) {
+            int leafIndex = random.nextInt(TREE_SIZE);
+            int previousTreeSize = 1 + random.nextInt(TREE_SIZE);
+            assertLogarithmic(() -> verifiableLog.proofBundle(leafIndex, previousTreeSize, TREE_SIZE), 2);
+        }
+    }
+
+    @Test
+    public void auditProofByLeafHash_isLogarithmic_onceIndexIsCaughtUp() {
+        byte[] firstLeafHash = Util.leafHash(leafValue(0), Util.sha256Instance());
+        verifiableLog.leafIndexOf(firstLeafHash, TREE_SIZE);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            byte[] leafHash = Util.leafHash(leafValue(random.nextInt(TREE_SIZE)), Util.sha256Instance());
+            assertLogarithmic(() -> verifiableLog.auditProofByLeafHash(leafHash, TREE_SIZE));
+        }
+    }
+
+    private void assertLogarithmic(Runnable operation) {
+        assertLogarithmic(operation, 1);
+    }
+
+    private void assertLogarithmic(Runnable operation, int proofs) {
+        counters.reset();
+        operation.run();
+        long bound = (long) proofs * PER_LEVEL * LOG_TREE_SIZE;
+        assertThat("leaf reads", counters.leafReads.get(), lessThanOrEqualTo(bound));
+        assertThat("hashes", counters.hashes.get(), lessThanOrEqualTo(bound));
+        assertThat("memoization store operations", counters.memoOperations.get(), lessThanOrEqualTo(bound));
+    }
+
+    private static byte[] leafValue(int leafIndex) {
+        return new byte[]{(byte) leafIndex, (byte) (leafIndex >> 8), (byte) (leafIndex >> 16), (byte) (leafIndex >> 24)};
+    }
+
+    private static class Counters {
+        final AtomicLong leafReads = new AtomicLong();
+        final AtomicLong hashes = new AtomicLong();
+        final AtomicLong memoOperations = new AtomicLong();
+
+        void reset() {
+            leafReads.set(0);
+            hashes.set(0);
+            memoOperations.set(0);
+        }
+    }
+
+    private static class CountingLeafStore implements MerkleLeafStore {
+        private final AtomicLong leafReads;
+        private final Supplier<Integer> totalLeaves;
+
+        CountingLeafStore(AtomicLong leafReads, Supplier<Integer> totalLeaves) {
+            this.leafReads = leafReads;
+            this.totalLeaves = totalLeaves;
+        }
+
+        @Override
+        public byte[] getLeafValue(int leafIndex) {
+            leafReads.incrementAndGet();
+            return leafValue(leafIndex);
+        }
+
+        @Override
+        public int totalLeaves() {
+            return totalLeaves.get();
+        }
+    }
+
+    private static class CountingMemoizationStore implements MemoizationStore {
+        private final AtomicLong memoOperations;
+        private final MemoizationStore memoizationStore;
+
+        CountingMemoizationStore(AtomicLong memoOperations, MemoizationStore memoizationStore) {
+            this.memoOperations = memoOperations;
+            this.memoizationStore = memoizationStore;
+        }
+
+        @Override
+        public void put(Integer start, Integer size, byte[] value) {
+            memoOperations.incrementAndGet();
+            memoizationStore.put(start, size, value);
+        }
+
+        @Override
+        public byte[] get(Integer start, Integer size) {
+            memoOperations.incrementAndGet();
+            return memoizationStore.get(start, size);
+        }
+    }
+
+    // counts completed digests; clones share the counter so that per-thread copies are counted too
+    private static class CountingMessageDigest extends MessageDigest implements Cloneable {
+        private final AtomicLong hashes;
+        private MessageDigest sha256;
+
+        CountingMessageDigest(AtomicLong hashes) throws NoSuchAlgorithmException {
+            super("SHA-256");
+            this.hashes = hashes;
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            sha256.update(input);
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int len) {
+            sha256.update(input, offset, len);
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            hashes.incrementAndGet();
+            return sha256.digest();
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return sha256.getDigestLength();
+        }
+
+        @Override
+        protected void engineReset() {
+            sha256.reset();
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            CountingMessageDigest clone = (CountingMessageDigest) super.clone();
+            clone.sha256 = (MessageDigest) sha256.clone();
+            return clone;
+        }
+    }
+}
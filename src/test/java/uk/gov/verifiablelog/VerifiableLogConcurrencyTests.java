@@ -0,0 +1,63 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class VerifiableLogConcurrencyTests {
+    @Test
+    public void concurrentMissesForSameSubtree_areComputedOnce() throws Exception {
+        AtomicInteger leafReads = new AtomicInteger();
+        MerkleLeafStore slowLeafStore = new MerkleLeafStore() {
+            @Override
+            public byte[] getLeafValue(int leafIndex) {
+                leafReads.incrementAndGet();
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return new byte[]{(byte) leafIndex};
+            }
+
+            @Override
+            public int totalLeaves() {
+                return 128;
+            }
+        };
+        VerifiableLog verifiableLog = new VerifiableLog(Util.sha256Instance(), slowLeafStore);
+
+        int threads = 8;
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> rootHashes = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                rootHashes.add(executorService.submit(() -> {
+                    startLatch.await();
+                    return bytesToString(verifiableLog.getCurrentRootHash());
+                }));
+            }
+            startLatch.countDown();
+            for (Future<String> rootHash : rootHashes) {
+                assertThat(rootHash.get(), is(rootHashes.get(0).get()));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertThat(leafReads.get(), is(128));
+    }
+}
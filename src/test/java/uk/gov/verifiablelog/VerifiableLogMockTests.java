@@ -3,10 +3,14 @@ package uk.gov.verifiablelog;
 import org.junit.Test;
 import org.mockito.Mockito;
 import uk.gov.verifiablelog.store.memoization.MemoizationStore;
+import uk.gov.verifiablelog.store.memoization.Subtree;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -25,7 +29,7 @@ public class VerifiableLogMockTests {
 
     @Test()
     public void getCurrentRootHash_usesStoreToRetrieveAndSave_for_emptyTreeAndEmptyStore() {
-        MemoizationStore storeMock = Mockito.mock(MemoizationStore.class);
+        MemoizationStore storeMock = mockMemoizationStore();
         VerifiableLog verifiableLog = makeVerifiableLog(Collections.emptyList(), storeMock);
 
         byte[] rootHash = verifiableLog.getCurrentRootHash();
@@ -43,7 +47,7 @@ public class VerifiableLogMockTests {
                 stringToBytes("21"),
                 stringToBytes("31")
         );
-        MemoizationStore storeMock = Mockito.mock(MemoizationStore.class);
+        MemoizationStore storeMock = mockMemoizationStore();
 
         VerifiableLog verifiableLog = makeVerifiableLog(leafValues, storeMock);
 
@@ -72,7 +76,7 @@ public class VerifiableLogMockTests {
                 stringToBytes("31")
         );
         byte[] expectedRootHash = stringToBytes("04");
-        MemoizationStore storeMock = Mockito.mock(MemoizationStore.class);
+        MemoizationStore storeMock = mockMemoizationStore();
         when(storeMock.get(0, 4)).thenReturn(expectedRootHash);
 
         VerifiableLog verifiableLog = makeVerifiableLog(leafValues, storeMock);
@@ -125,7 +129,7 @@ public class VerifiableLogMockTests {
         byte[] expectedNodeHash04 = stringToBytes("04");
         byte[] expectedNodeHash51 = stringToBytes("51");
 
-        MemoizationStore storeMock = Mockito.mock(MemoizationStore.class);
+        MemoizationStore storeMock = mockMemoizationStore();
         when(storeMock.get(0, 4)).thenReturn(expectedNodeHash04);
         when(storeMock.get(5, 1)).thenReturn(expectedNodeHash51);
 
@@ -190,7 +194,7 @@ public class VerifiableLogMockTests {
         byte[] expectedNodeHash42 = stringToBytes("04");
         byte[] expectedNodeHash62 = stringToBytes("51");
 
-        MemoizationStore storeMock = Mockito.mock(MemoizationStore.class);
+        MemoizationStore storeMock = mockMemoizationStore();
         when(storeMock.get(4, 2)).thenReturn(expectedNodeHash42);
         when(storeMock.get(6, 2)).thenReturn(expectedNodeHash62);
 
@@ -209,7 +213,48 @@ public class VerifiableLogMockTests {
         assertThat(consistencyProof, hasSize(1));
     }
 
-        private void verifyStoreCalledToGetAndPut(MemoizationStore storeMock, Integer start, Integer size) {
+    @Test
+    public void proofBundle_computesEachSubtreeOnce() {
+        List<byte[]> leafValues = Arrays.asList(
+                stringToBytes("01"),
+                stringToBytes("11"),
+                stringToBytes("21"),
+                stringToBytes("31"),
+                stringToBytes("41"),
+                stringToBytes("51"),
+                stringToBytes("61")
+        );
+        MemoizationStore storeMock = mockMemoizationStore();
+
+        VerifiableLog verifiableLog = makeVerifiableLog(leafValues, storeMock);
+
+        ProofBundle proofBundle = verifiableLog.proofBundle(5, 4);
+
+        // the 13 nodes of a tree of size 7 are each computed exactly once
+        verify(storeMock, times(13)).put(anyInt(), anyInt(), any(byte[].class));
+        verify(storeMock, times(13)).get(anyInt(), anyInt());
+        assertThat(proofBundle.getAuditProof(), hasSize(3));
+        assertThat(proofBundle.getConsistencyProof(), hasSize(1));
+    }
+
+    // a mock whose getAll looks up each subtree with get, as the default method does, so that lookups can be verified
+    @SuppressWarnings("unchecked")
+    private static MemoizationStore mockMemoizationStore() {
+        MemoizationStore storeMock = Mockito.mock(MemoizationStore.class);
+        when(storeMock.getAll(any(Collection.class))).thenAnswer(invocation -> {
+            Map<Subtree, byte[]> result = new HashMap<>();
+            for (Subtree subtree : (Collection<Subtree>) invocation.getArguments()[0]) {
+                byte[] value = storeMock.get(subtree.getStart(), subtree.getSize());
+                if (value != null) {
+                    result.put(subtree, value);
+                }
+            }
+            return result;
+        });
+        return storeMock;
+    }
+
+    private void verifyStoreCalledToGetAndPut(MemoizationStore storeMock, Integer start, Integer size) {
         verify(storeMock, times(1)).get(eq(start), eq(size));
         verify(storeMock, times(1)).put(eq(start), eq(size), any(byte[].class));
     }
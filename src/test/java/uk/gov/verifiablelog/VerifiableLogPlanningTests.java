@@ -0,0 +1,116 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.store.memoization.InMemory;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwo;
+import uk.gov.verifiablelog.store.memoization.MemoizationStore;
+import uk.gov.verifiablelog.store.memoization.Subtree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class VerifiableLogPlanningTests {
+    @Test
+    public void warmProofs_takeOneRoundTripToTheMemoizationStore() {
+        List<byte[]> leaves = leaves(1000);
+        RoundTripCountingStore store = new RoundTripCountingStore(new InMemory());
+        VerifiableLog verifiableLog = makeVerifiableLog(leaves, store);
+        verifiableLog.getCurrentRootHash();
+
+        for (int leafIndex = 0; leafIndex < 1000; leafIndex += 97) {
+            store.reset();
+            verifiableLog.auditProof(leafIndex, 1000);
+            assertThat(store.roundTrips, is(1));
+        }
+        store.reset();
+        verifiableLog.consistencyProof(300, 1000);
+        assertThat(store.roundTrips, is(1));
+        store.reset();
+        verifiableLog.getCurrentRootHash();
+        assertThat(store.roundTrips, is(1));
+    }
+
+    @Test
+    public void partlyMemoizedProofs_takeOneRoundTripPerLevelOfMisses() {
+        List<byte[]> leaves = leaves(1000);
+        VerifiableLog expected = makeVerifiableLog(leaves);
+        RoundTripCountingStore store = new RoundTripCountingStore(new InMemoryPowOfTwo());
+        VerifiableLog verifiableLog = makeVerifiableLog(leaves, store);
+        verifiableLog.getSpecificRootHash(512);
+
+        store.reset();
+        List<byte[]> consistencyProof = verifiableLog.consistencyProof(512, 1000);
+
+        assertThat(bytesToString(consistencyProof), is(bytesToString(expected.consistencyProof(512, 1000))));
+        // a tree of 1000 leaves is 10 levels deep, and every lookup is part of a level's getAll
+        assertThat(store.roundTrips, lessThanOrEqualTo(11));
+        assertThat(store.singleGets, is(0));
+    }
+
+    @Test
+    public void plannedResults_matchUnmemoizedLog() {
+        List<byte[]> leaves = leaves(300);
+        VerifiableLog expected = makeVerifiableLog(leaves);
+        VerifiableLog verifiableLog = makeVerifiableLog(leaves, new InMemoryPowOfTwo());
+
+        for (int treeSize = 1; treeSize <= 300; treeSize += 13) {
+            assertThat(bytesToString(verifiableLog.getSpecificRootHash(treeSize)), is(bytesToString(expected.getSpecificRootHash(treeSize))));
+            for (int leafIndex = 0; leafIndex < treeSize; leafIndex += 5) {
+                assertThat(bytesToString(verifiableLog.auditProof(leafIndex, treeSize)), is(bytesToString(expected.auditProof(leafIndex, treeSize))));
+            }
+            for (int treeSize1 = 1; treeSize1 <= treeSize; treeSize1 += 9) {
+                assertThat(bytesToString(verifiableLog.consistencyProof(treeSize1, treeSize)), is(bytesToString(expected.consistencyProof(treeSize1, treeSize))));
+            }
+        }
+    }
+
+    private static List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaves.add(("leaf-" + i).getBytes());
+        }
+        return leaves;
+    }
+
+    // counts each getAll, and each get made other than by a getAll, as a round trip to a remote store
+    private static class RoundTripCountingStore implements MemoizationStore {
+        private final MemoizationStore memoizationStore;
+        private int roundTrips;
+        private int singleGets;
+
+        RoundTripCountingStore(MemoizationStore memoizationStore) {
+            this.memoizationStore = memoizationStore;
+        }
+
+        void reset() {
+            roundTrips = 0;
+            singleGets = 0;
+        }
+
+        @Override
+        public void put(Integer start, Integer size, byte[] value) {
+            memoizationStore.put(start, size, value);
+        }
+
+        @Override
+        public byte[] get(Integer start, Integer size) {
+            roundTrips++;
+            singleGets++;
+            return memoizationStore.get(start, size);
+        }
+
+        @Override
+        public Map<Subtree, byte[]> getAll(Collection<Subtree> subtrees) {
+            roundTrips++;
+            return memoizationStore.getAll(subtrees);
+        }
+    }
+}
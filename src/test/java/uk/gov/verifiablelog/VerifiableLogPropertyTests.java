@@ -117,4 +117,57 @@ public class VerifiableLogPropertyTests {
                     assertThat(bytesToString(consistencyProofForInMemoryPowOfTwo), is(bytesToString(consistencyProofForNonMemoized)));
                 });
     }
+
+    @Test
+    public void property_canVerifyRangeProof() {
+        qt().forAll(lists().allListsOf(strings().numeric()).ofSizeBetween(1, 1000), integers().between(0, 999), integers().between(1, 1000))
+                .assuming((entries, begin, end) -> begin < end && end <= entries.size())
+                .check((entryStrings, begin, end) -> {
+                    List<byte[]> entries = entryStrings.stream().map(String::getBytes).collect(toList());
+                    VerifiableLog verifiableLog = makeVerifiableLog(entries);
+                    List<byte[]> rangeProof = verifiableLog.rangeProof(begin, end, entries.size());
+
+                    return VerifiableLogVerification.isValidRangeProof(verifiableLog.getCurrentRootHash(), entries.size(), begin, entries.subList(begin, end), rangeProof);
+                });
+    }
+
+    @Test
+    public void property_batchRootHashesAndConsistencyProofsAreSameAsIndividualOnes() {
+        qt().forAll(lists().allListsOf(strings().numeric()).ofSizeBetween(1, 1000), lists().allListsOf(integers().between(1, 1000)).ofSizeBetween(1, 10))
+                .assuming((entries, treeSizes) -> treeSizes.stream().allMatch(treeSize -> treeSize <= entries.size()))
+                .checkAssert((entryStrings, unorderedTreeSizes) -> {
+                    List<byte[]> entries = entryStrings.stream().map(String::getBytes).collect(toList());
+                    List<Integer> treeSizes = unorderedTreeSizes.stream().sorted().collect(toList());
+                    VerifiableLog verifiableLog = makeVerifiableLog(entries);
+
+                    List<byte[]> rootHashes = verifiableLog.getSpecificRootHashes(treeSizes);
+                    List<List<byte[]>> consistencyProofs = verifiableLog.consistencyProofs(treeSizes);
+
+                    for (int i = 0; i < treeSizes.size(); i++) {
+                        assertThat(bytesToString(rootHashes.get(i)), is(bytesToString(verifiableLog.getSpecificRootHash(treeSizes.get(i)))));
+                    }
+                    for (int i = 1; i < treeSizes.size(); i++) {
+                        assertThat(bytesToString(consistencyProofs.get(i - 1)), is(bytesToString(verifiableLog.consistencyProof(treeSizes.get(i - 1), treeSizes.get(i)))));
+                    }
+                });
+    }
+
+    @Test
+    public void property_proofBundleIsSameAsSeparateProofsAndCanBeVerified() {
+        qt().forAll(lists().allListsOf(strings().numeric()).ofSizeBetween(1, 1000), integers().between(0, 999), integers().between(1, 1000))
+                .assuming((entries, leafIndex, previousTreeSize) -> leafIndex < entries.size() && previousTreeSize <= entries.size())
+                .checkAssert((entryStrings, leafIndex, previousTreeSize) -> {
+                    List<byte[]> entries = entryStrings.stream().map(String::getBytes).collect(toList());
+                    VerifiableLog verifiableLog = makeVerifiableLog(entries, new InMemoryPowOfTwo());
+                    byte[] previousRootHash = verifiableLog.getSpecificRootHash(previousTreeSize);
+
+                    ProofBundle proofBundle = verifiableLog.proofBundle(leafIndex, previousTreeSize);
+
+                    assertThat(proofBundle.getTreeHead().getTreeSize(), is(entries.size()));
+                    assertThat(bytesToString(proofBundle.getTreeHead().getRootHash()), is(bytesToString(verifiableLog.getCurrentRootHash())));
+                    assertThat(bytesToString(proofBundle.getAuditProof()), is(bytesToString(verifiableLog.auditProof(leafIndex, entries.size()))));
+                    assertThat(bytesToString(proofBundle.getConsistencyProof()), is(bytesToString(verifiableLog.consistencyProof(previousTreeSize, entries.size()))));
+                    assertThat(VerifiableLogVerification.isValidProofBundle(proofBundle, entries.get(leafIndex), previousRootHash), is(true));
+                });
+    }
 }
@@ -0,0 +1,106 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.BudgetedInMemory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class VerifiableLogRegistryTests {
+    private static final long BUDGET = 200 * (32 + BudgetedInMemory.ENTRY_OVERHEAD_BYTES);
+
+    @Test
+    public void registeredLogs_computeSameRootHashes() {
+        VerifiableLogRegistry registry = new VerifiableLogRegistry(Util.sha256Instance(), BUDGET);
+        List<byte[]> leaves = leaves(100);
+
+        VerifiableLog verifiableLog = registry.register("a", leafStore(leaves));
+
+        assertThat(bytesToString(verifiableLog.getCurrentRootHash()), is(bytesToString(makeVerifiableLog(leaves).getCurrentRootHash())));
+        assertThat(registry.get("a") == verifiableLog, is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void register_rejectsDuplicateName() {
+        VerifiableLogRegistry registry = new VerifiableLogRegistry(Util.sha256Instance(), BUDGET);
+        registry.register("a", leafStore(leaves(1)));
+        registry.register("a", leafStore(leaves(1)));
+    }
+
+    @Test
+    public void rebalance_givesMoreBudgetToBusierLog() {
+        VerifiableLogRegistry registry = new VerifiableLogRegistry(Util.sha256Instance(), BUDGET);
+        VerifiableLog hot = registry.register("hot", leafStore(leaves(500)));
+        VerifiableLog cold = registry.register("cold", leafStore(leaves(500)));
+
+        for (int i = 0; i < 500; i++) {
+            hot.auditProof(i, 500);
+        }
+        cold.auditProof(0, 500);
+        registry.rebalance();
+
+        long hotBudget = registry.statistics("hot").getBudgetBytes();
+        long coldBudget = registry.statistics("cold").getBudgetBytes();
+        assertThat(hotBudget, greaterThan(coldBudget));
+        assertThat(coldBudget, greaterThan(0L));
+        assertThat(hotBudget + coldBudget, lessThanOrEqualTo(BUDGET));
+        assertThat(registry.statistics("cold").getBytesUsed(), lessThanOrEqualTo(coldBudget));
+        assertThat(registry.getBytesUsed(), lessThanOrEqualTo(BUDGET));
+    }
+
+    @Test
+    public void statistics_reportHitRate() {
+        VerifiableLogRegistry registry = new VerifiableLogRegistry(Util.sha256Instance(), BUDGET);
+        VerifiableLog verifiableLog = registry.register("a", leafStore(leaves(64)));
+
+        verifiableLog.getCurrentRootHash();
+        verifiableLog.getCurrentRootHash();
+
+        VerifiableLogRegistry.LogStatistics statistics = registry.statistics("a");
+        assertThat(statistics.getHits(), greaterThan(0L));
+        assertThat(statistics.getHitRate() > 0 && statistics.getHitRate() < 1, is(true));
+    }
+
+    @Test
+    public void unregister_releasesBudget() {
+        VerifiableLogRegistry registry = new VerifiableLogRegistry(Util.sha256Instance(), BUDGET);
+        registry.register("a", leafStore(leaves(8)));
+        registry.register("b", leafStore(leaves(8)));
+
+        assertThat(registry.unregister("a"), is(true));
+
+        assertThat(registry.get("a"), is(nullValue()));
+        assertThat(registry.statistics("b").getBudgetBytes(), is(BUDGET));
+    }
+
+    private static List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaves.add(new byte[]{(byte) i, (byte) (i >> 8)});
+        }
+        return leaves;
+    }
+
+    private static MerkleLeafStore leafStore(List<byte[]> leaves) {
+        return new MerkleLeafStore() {
+            @Override
+            public byte[] getLeafValue(int leafIndex) {
+                return leaves.get(leafIndex);
+            }
+
+            @Override
+            public int totalLeaves() {
+                return leaves.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package uk.gov.verifiablelog;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class VerifiableLogSnapshotTests {
+    @Test
+    public void snapshot_isUnaffectedByLeavesAppendedAfterItWasTaken() {
+        List<byte[]> leafValues = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            leafValues.add(new byte[]{(byte) i});
+        }
+        VerifiableLog verifiableLog = makeVerifiableLog(leafValues, new InMemoryPowOfTwo());
+
+        VerifiableLogSnapshot snapshot = verifiableLog.snapshot();
+        byte[] rootHash = snapshot.getRootHash();
+        leafValues.add(new byte[]{10});
+
+        assertThat(snapshot.getTreeSize(), is(10));
+        assertThat(bytesToString(snapshot.getRootHash()), is(bytesToString(rootHash)));
+        assertThat(bytesToString(snapshot.getRootHash()), is(bytesToString(verifiableLog.getSpecificRootHash(10))));
+        assertThat(bytesToString(snapshot.auditProof(3)), is(bytesToString(verifiableLog.auditProof(3, 10))));
+        assertThat(bytesToString(snapshot.consistencyProof(4)), is(bytesToString(verifiableLog.consistencyProof(4, 10))));
+        assertThat(VerifiableLogVerification.isValidAuditProof(snapshot.getRootHash(), 10, 3, snapshot.auditProof(3), leafValues.get(3)), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void auditProof_throwsIllegalArgumentException_forLeafAppendedAfterSnapshot() {
+        List<byte[]> leafValues = new ArrayList<>();
+        leafValues.add(new byte[]{0});
+        VerifiableLog verifiableLog = makeVerifiableLog(leafValues);
+
+        VerifiableLogSnapshot snapshot = verifiableLog.snapshot();
+        leafValues.add(new byte[]{1});
+
+        snapshot.auditProof(1);
+    }
+
+    @Test
+    public void snapshots_canBeUsedByManyThreadsAtOnce() throws Exception {
+        List<byte[]> leafValues = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            leafValues.add(Integer.toString(i).getBytes());
+        }
+        VerifiableLog verifiableLog = makeVerifiableLog(Collections.unmodifiableList(leafValues));
+        byte[] expectedRootHash = makeVerifiableLog(leafValues).getSpecificRootHash(1000);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> rootHashes = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                rootHashes.add(executorService.submit(() -> verifiableLog.snapshot().getRootHash()));
+            }
+            for (Future<byte[]> rootHash : rootHashes) {
+                assertThat(bytesToString(rootHash.get()), is(bytesToString(expectedRootHash)));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
+import uk.gov.verifiablelog.store.memoization.ConcurrentPowOfTwo;
 import uk.gov.verifiablelog.store.memoization.InMemory;
 import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwo;
 import uk.gov.verifiablelog.store.memoization.MemoizationStore;
@@ -47,7 +48,8 @@ public class VerifiableLogTests {
         return Arrays.asList(
                 () -> null,
                 InMemory::new,
-                InMemoryPowOfTwo::new
+                InMemoryPowOfTwo::new,
+                ConcurrentPowOfTwo::new
         );
     }
 
@@ -167,4 +169,110 @@ public class VerifiableLogTests {
                 "5f083f0a1a33ca076a95279832580db3e0ef4584bdff1f54c8a360f50de3031e",
                 "bc1a0643b12e4d2d7c77918f44e0f4f79a838b6cf9ec5b5c283e1f4d88599e6b")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void auditProofByLeafHash_returnsSameProofAsAuditProof() {
+        for (byte[] testInput : TEST_INPUTS) {
+            leafValues.add(testInput);
+        }
+
+        for (int leafIndex = 0; leafIndex < TEST_INPUTS.size(); leafIndex++) {
+            byte[] leafHash = Util.leafHash(TEST_INPUTS.get(leafIndex), Util.sha256Instance());
+
+            assertThat(verifiableLog.leafIndexOf(leafHash, TEST_INPUTS.size()), is(leafIndex));
+            assertThat(bytesToString(verifiableLog.auditProofByLeafHash(leafHash, TEST_INPUTS.size())),
+                    is(bytesToString(verifiableLog.auditProof(leafIndex, TEST_INPUTS.size()))));
+        }
+    }
+
+    @Test
+    public void leafIndexOf_returnsMinusOne_whenLeafIsNotInTreeOfGivenSize() {
+        for (byte[] testInput : TEST_INPUTS) {
+            leafValues.add(testInput);
+        }
+        byte[] lastLeafHash = Util.leafHash(TEST_INPUTS.get(7), Util.sha256Instance());
+
+        assertThat(verifiableLog.leafIndexOf(lastLeafHash, 8), is(7));
+        assertThat(verifiableLog.leafIndexOf(lastLeafHash, 7), is(-1));
+        assertThat(verifiableLog.leafIndexOf(stringToBytes(emptyRootHash), 8), is(-1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void auditProofByLeafHash_throwsIllegalArgumentException_whenLeafIsNotInTree() {
+        leafValues.add(TEST_INPUTS.get(0));
+
+        verifiableLog.auditProofByLeafHash(stringToBytes(emptyRootHash), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void auditProofByLeafHash_throwsIllegalArgumentException_whenTreeSizeIsMoreThanTotalLeaves() {
+        leafValues.add(TEST_INPUTS.get(0));
+
+        verifiableLog.auditProofByLeafHash(Util.leafHash(TEST_INPUTS.get(0), Util.sha256Instance()), 2);
+    }
+
+    @Test
+    public void expectedRangeProofForTreeSize() {
+        for (byte[] testInput : TEST_INPUTS) {
+            leafValues.add(testInput);
+        }
+
+        assertThat(verifiableLog.rangeProof(0, 8, 8).size(), is(0));
+
+        List<byte[]> rangeProof1 = verifiableLog.rangeProof(4, 8, 8);
+        assertThat(bytesToString(rangeProof1), is(Arrays.asList(
+                "d37ee418976dd95753c1c73862b9398fa2a2cf9b4ff0fdfe8b30cd95209614b7")));
+
+        List<byte[]> rangeProof2 = verifiableLog.rangeProof(5, 6, 8);
+        assertThat(bytesToString(rangeProof2), is(bytesToString(Arrays.asList(
+                verifiableLog.auditProof(5, 8).get(2),
+                verifiableLog.auditProof(5, 8).get(0),
+                verifiableLog.auditProof(5, 8).get(1)))));
+
+        List<byte[]> rangeProof3 = verifiableLog.rangeProof(1, 7, 8);
+        assertThat(rangeProof3.size(), is(2));
+        assertThat(VerifiableLogVerification.isValidRangeProof(verifiableLog.getCurrentRootHash(), 8, 1, leafValues.subList(1, 7), rangeProof3), is(true));
+        assertThat(VerifiableLogVerification.isValidRangeProof(verifiableLog.getCurrentRootHash(), 8, 1, leafValues.subList(2, 8), rangeProof3), is(false));
+        assertThat(VerifiableLogVerification.isValidRangeProof(verifiableLog.getCurrentRootHash(), 8, 1, leafValues.subList(1, 7), rangeProof3.subList(0, 1)), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeProof_throwsIllegalArgumentException_whenRangeIsEmpty() {
+        leafValues.add(TEST_INPUTS.get(0));
+
+        verifiableLog.rangeProof(0, 0, 1);
+    }
+
+    @Test
+    public void batchOperations_readEachLeafAtMostOnce_forChainOfTreeSizes() {
+        int[] leafReads = {0};
+        List<byte[]> countingLeafValues = new AbstractList<byte[]>() {
+            @Override
+            public byte[] get(int index) {
+                leafReads[0]++;
+                return leafValues.get(index);
+            }
+
+            @Override
+            public int size() {
+                return leafValues.size();
+            }
+        };
+        VerifiableLog countingLog = makeVerifiableLog(countingLeafValues, memoizationStoreSupplier.get());
+        List<Integer> treeSizes = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            leafValues.add(new byte[]{(byte) i});
+            treeSizes.add(i + 1);
+        }
+
+        List<byte[]> rootHashes = countingLog.getSpecificRootHashes(treeSizes);
+        assertThat(leafReads[0], is(256));
+
+        leafReads[0] = 0;
+        List<List<byte[]>> consistencyProofs = countingLog.consistencyProofs(treeSizes);
+        assertThat(leafReads[0] <= 256, is(true));
+
+        assertThat(bytesToString(rootHashes.get(255)), is(bytesToString(verifiableLog.getSpecificRootHash(256))));
+        assertThat(consistencyProofs.size(), is(255));
+    }
+}
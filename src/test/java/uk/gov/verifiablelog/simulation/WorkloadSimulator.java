@@ -0,0 +1,504 @@
+package uk.gov.verifiablelog.simulation;
+
+import uk.gov.verifiablelog.VerifiableLog;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+import uk.gov.verifiablelog.store.memoization.ConcurrentPowOfTwo;
+import uk.gov.verifiablelog.store.memoization.InMemory;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwo;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwoFromLevel;
+import uk.gov.verifiablelog.store.memoization.InMemoryPowOfTwoNoLeaves;
+import uk.gov.verifiablelog.store.memoization.MemoizationStore;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Drives a {@link VerifiableLog} with a configurable mix of audit proofs, consistency proofs and tree head polls
+ * while leaves are appended, against a synthetic leaf store of configurable size and read latency, and reports
+ * throughput, latency percentiles and memoization hit rates.
+ *
+ * Run from the command line with {@code key=value} arguments named after the {@link Configuration} setters, for
+ * example {@code initialTreeSize=100000000 memoizationStore=ConcurrentPowOfTwo threads=16}.
+ */
+public class WorkloadSimulator {
+
+    /**
+     * The kinds of request in a workload.
+     */
+    public enum Operation {
+        AUDIT_PROOF, CONSISTENCY_PROOF, TREE_HEAD
+    }
+
+    /**
+     * The settings of a simulated workload. The defaults are a mix of 70% audit proofs skewed toward recent
+     * leaves, 20% consistency proofs from uniformly chosen earlier tree sizes and 10% tree head polls.
+     */
+    public static class Configuration {
+        private int initialTreeSize = 1_000_000;
+        private long leafReadLatencyNanos = 0;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int operations = 100_000;
+        private int auditProofPercent = 70;
+        private int consistencyProofPercent = 20;
+        private double recentLeafSkew = 4;
+        private int appendsPerSecond = 1_000;
+        private String memoizationStore = "ConcurrentPowOfTwo";
+        private long seed = 1;
+
+        /**
+         * @param initialTreeSize The number of leaves in the log before the workload starts
+         * @return This configuration
+         */
+        public Configuration initialTreeSize(int initialTreeSize) {
+            this.initialTreeSize = initialTreeSize;
+            return this;
+        }
+
+        /**
+         * @param leafReadLatencyNanos The time each leaf read takes, simulating a remote leaf store
+         * @return This configuration
+         */
+        public Configuration leafReadLatencyNanos(long leafReadLatencyNanos) {
+            this.leafReadLatencyNanos = leafReadLatencyNanos;
+            return this;
+        }
+
+        /**
+         * @param threads The number of threads issuing requests
+         * @return This configuration
+         */
+        public Configuration threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param operations The total number of requests to issue across all threads
+         * @return This configuration
+         */
+        public Configuration operations(int operations) {
+            this.operations = operations;
+            return this;
+        }
+
+        /**
+         * @param auditProofPercent The percentage of requests that are audit proofs
+         * @return This configuration
+         */
+        public Configuration auditProofPercent(int auditProofPercent) {
+            this.auditProofPercent = auditProofPercent;
+            return this;
+        }
+
+        /**
+         * @param consistencyProofPercent The percentage of requests that are consistency proofs; the remainder are
+         *                                tree head polls
+         * @return This configuration
+         */
+        public Configuration consistencyProofPercent(int consistencyProofPercent) {
+            this.consistencyProofPercent = consistencyProofPercent;
+            return this;
+        }
+
+        /**
+         * @param recentLeafSkew How strongly audit proofs favour recent leaves: 1 is uniform, and larger values
+         *                       concentrate requests on the end of the log
+         * @return This configuration
+         */
+        public Configuration recentLeafSkew(double recentLeafSkew) {
+            this.recentLeafSkew = recentLeafSkew;
+            return this;
+        }
+
+        /**
+         * @param appendsPerSecond The rate at which leaves are appended while the workload runs
+         * @return This configuration
+         */
+        public Configuration appendsPerSecond(int appendsPerSecond) {
+            this.appendsPerSecond = appendsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param memoizationStore The simple class name of the memoization store to use, or DoNothing, with the
+         *                         minimum level after a colon for InMemoryPowOfTwoFromLevel; stores that are not
+         *                         thread-safe are synchronized
+         * @return This configuration
+         */
+        public Configuration memoizationStore(String memoizationStore) {
+            this.memoizationStore = memoizationStore;
+            return this;
+        }
+
+        /**
+         * @param seed The seed of the random choice of requests
+         * @return This configuration
+         */
+        public Configuration seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        Supplier<MemoizationStore> memoizationStoreSupplier() {
+            if (memoizationStore.startsWith("InMemoryPowOfTwoFromLevel:")) {
+                int minLevel = Integer.parseInt(memoizationStore.substring(memoizationStore.indexOf(':') + 1));
+                return () -> new SynchronizedMemoizationStore(new InMemoryPowOfTwoFromLevel(minLevel));
+            }
+            switch (memoizationStore) {
+                case "DoNothing":
+                    return () -> null;
+                case "InMemory":
+                    return () -> new SynchronizedMemoizationStore(new InMemory());
+                case "InMemoryPowOfTwo":
+                    return () -> new SynchronizedMemoizationStore(new InMemoryPowOfTwo());
+                case "InMemoryPowOfTwoNoLeaves":
+                    return () -> new SynchronizedMemoizationStore(new InMemoryPowOfTwoNoLeaves());
+                case "ConcurrentPowOfTwo":
+                    return ConcurrentPowOfTwo::new;
+                default:
+                    throw new IllegalArgumentException("unknown memoization store " + memoizationStore);
+            }
+        }
+    }
+
+    /**
+     * The measurements of a simulated workload.
+     */
+    public static class Report {
+        private final double seconds;
+        private final Map<Operation, long[]> latencies;
+        private final long memoHits;
+        private final long memoMisses;
+        private final long leafReads;
+        private final int appended;
+        private final long heapBytes;
+
+        Report(double seconds, Map<Operation, long[]> latencies, long memoHits, long memoMisses, long leafReads, int appended, long heapBytes) {
+            this.seconds = seconds;
+            this.latencies = latencies;
+            this.memoHits = memoHits;
+            this.memoMisses = memoMisses;
+            this.leafReads = leafReads;
+            this.appended = appended;
+            this.heapBytes = heapBytes;
+        }
+
+        /**
+         * @return The number of requests of all kinds that were completed
+         */
+        public int getOperations() {
+            return latencies.values().stream().mapToInt(l -> l.length).sum();
+        }
+
+        /**
+         * @param operation The kind of request
+         * @return The number of requests of that kind that were completed
+         */
+        public int getOperations(Operation operation) {
+            return latencies.get(operation).length;
+        }
+
+        /**
+         * @return The number of requests completed per second
+         */
+        public double getThroughput() {
+            return getOperations() / seconds;
+        }
+
+        /**
+         * @param operation The kind of request
+         * @param percentile The percentile, between 0 and 100
+         * @return The latency of the percentile in nanoseconds, or 0 if there were no requests of that kind
+         */
+        public long latencyNanos(Operation operation, double percentile) {
+            long[] sorted = latencies.get(operation);
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        /**
+         * @return The fraction of memoization lookups that found a hash
+         */
+        public double getMemoHitRate() {
+            return memoHits + memoMisses == 0 ? 0 : (double) memoHits / (memoHits + memoMisses);
+        }
+
+        /**
+         * @return The number of leaves read while the workload ran
+         */
+        public long getLeafReads() {
+            return leafReads;
+        }
+
+        /**
+         * @return The number of leaves appended while the workload ran
+         */
+        public int getAppended() {
+            return appended;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%d requests in %.2fs: %.0f req/s, %d leaves appended%n", getOperations(), seconds, getThroughput(), appended));
+            for (Operation operation : Operation.values()) {
+                report.append(String.format("  %-18s n=%-8d p50=%8.1fus p99=%8.1fus p99.9=%8.1fus%n", operation, getOperations(operation),
+                        latencyNanos(operation, 50) / 1e3, latencyNanos(operation, 99) / 1e3, latencyNanos(operation, 99.9) / 1e3));
+            }
+            report.append(String.format("  memo hit rate %.4f (%d hits, %d misses), %d leaf reads%n", getMemoHitRate(), memoHits, memoMisses, leafReads));
+            report.append(String.format("  heap in use after warm-up and run: %.1f MiB%n", heapBytes / (1024.0 * 1024.0)));
+            return report.toString();
+        }
+    }
+
+    private final Configuration configuration;
+
+    /**
+     * Creates a new instance of a {@link WorkloadSimulator} object.
+     * @param configuration The settings of the workload
+     */
+    public WorkloadSimulator(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Builds the log, computes its root hash to warm the memoization store, and then runs the workload.
+     * @return The measurements of the workload
+     * @throws Exception if a request fails
+     */
+    public Report run() throws Exception {
+        AtomicInteger treeSize = new AtomicInteger(configuration.initialTreeSize);
+        SyntheticLeafStore leafStore = new SyntheticLeafStore(treeSize, configuration.leafReadLatencyNanos);
+        MemoizationStore backing = configuration.memoizationStoreSupplier().get();
+        CountingMemoizationStore memoizationStore = backing == null ? null : new CountingMemoizationStore(backing);
+        VerifiableLog verifiableLog = new VerifiableLog(MessageDigest.getInstance("SHA-256"), leafStore, memoizationStore);
+
+        verifiableLog.getCurrentRootHash();
+        leafStore.leafReads.set(0);
+        if (memoizationStore != null) {
+            memoizationStore.reset();
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread appender = new Thread(() -> append(treeSize, running), "workload-appender");
+        appender.setDaemon(true);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(configuration.threads);
+        List<Future<Map<Operation, long[]>>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        appender.start();
+        try {
+            for (int t = 0; t < configuration.threads; t++) {
+                int operations = configuration.operations / configuration.threads + (t < configuration.operations % configuration.threads ? 1 : 0);
+                Random random = new Random(configuration.seed * 31 + t);
+                results.add(executorService.submit(() -> issueRequests(verifiableLog, treeSize, random, operations)));
+            }
+            Map<Operation, long[]> latencies = merge(results);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            running.set(false);
+            appender.join();
+
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long heapBytes = runtime.totalMemory() - runtime.freeMemory();
+            return new Report(seconds, latencies,
+                    memoizationStore == null ? 0 : memoizationStore.hits.get(),
+                    memoizationStore == null ? 0 : memoizationStore.misses.get(),
+                    leafStore.leafReads.get(), treeSize.get() - configuration.initialTreeSize, heapBytes);
+        } finally {
+            running.set(false);
+            executorService.shutdown();
+        }
+    }
+
+    private Map<Operation, long[]> issueRequests(VerifiableLog verifiableLog, AtomicInteger treeSize, Random random, int operations) {
+        Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+        for (int i = 0; i < operations; i++) {
+            int size = treeSize.get();
+            int choice = random.nextInt(100);
+            long start = System.nanoTime();
+            Operation operation;
+            if (choice < configuration.auditProofPercent) {
+                operation = Operation.AUDIT_PROOF;
+                // a power law over the distance from the end of the log favours recent leaves
+                int distance = (int) ((size - 1) * Math.pow(random.nextDouble(), configuration.recentLeafSkew));
+                verifiableLog.auditProof(size - 1 - distance, size);
+            } else if (choice < configuration.auditProofPercent + configuration.consistencyProofPercent) {
+                operation = Operation.CONSISTENCY_PROOF;
+                verifiableLog.consistencyProof(1 + random.nextInt(size), size);
+            } else {
+                operation = Operation.TREE_HEAD;
+                verifiableLog.getSpecificRootHash(size);
+            }
+            recorders.get(operation).record(System.nanoTime() - start);
+        }
+        Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+        recorders.forEach((operation, recorder) -> latencies.put(operation, recorder.toArray()));
+        return latencies;
+    }
+
+    private void append(AtomicInteger treeSize, AtomicBoolean running) {
+        if (configuration.appendsPerSecond <= 0) {
+            return;
+        }
+        long intervalNanos = 1_000_000_000L / configuration.appendsPerSecond;
+        long next = System.nanoTime();
+        while (running.get()) {
+            next += intervalNanos;
+            LockSupport.parkNanos(next - System.nanoTime());
+            treeSize.incrementAndGet();
+        }
+    }
+
+    private static Map<Operation, long[]> merge(List<Future<Map<Operation, long[]>>> results) throws Exception {
+        Map<Operation, LatencyRecorder> merged = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            merged.put(operation, new LatencyRecorder());
+        }
+        for (Future<Map<Operation, long[]>> result : results) {
+            for (Map.Entry<Operation, long[]> entry : result.get().entrySet()) {
+                for (long latency : entry.getValue()) {
+                    merged.get(entry.getKey()).record(latency);
+                }
+            }
+        }
+        Map<Operation, long[]> sorted = new EnumMap<>(Operation.class);
+        merged.forEach((operation, recorder) -> {
+            long[] latencies = recorder.toArray();
+            Arrays.sort(latencies);
+            sorted.put(operation, latencies);
+        });
+        return sorted;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuration configuration = new Configuration();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("expected key=value but was " + arg);
+            }
+            String value = keyValue[1];
+            switch (keyValue[0]) {
+                case "initialTreeSize": configuration.initialTreeSize(Integer.parseInt(value)); break;
+                case "leafReadLatencyNanos": configuration.leafReadLatencyNanos(Long.parseLong(value)); break;
+                case "threads": configuration.threads(Integer.parseInt(value)); break;
+                case "operations": configuration.operations(Integer.parseInt(value)); break;
+                case "auditProofPercent": configuration.auditProofPercent(Integer.parseInt(value)); break;
+                case "consistencyProofPercent": configuration.consistencyProofPercent(Integer.parseInt(value)); break;
+                case "recentLeafSkew": configuration.recentLeafSkew(Double.parseDouble(value)); break;
+                case "appendsPerSecond": configuration.appendsPerSecond(Integer.parseInt(value)); break;
+                case "memoizationStore": configuration.memoizationStore(value); break;
+                case "seed": configuration.seed(Long.parseLong(value)); break;
+                default: throw new IllegalArgumentException("unknown setting " + keyValue[0]);
+            }
+        }
+        System.out.print(new WorkloadSimulator(configuration).run());
+    }
+
+    private static class LatencyRecorder {
+        private long[] latencies = new long[1024];
+        private int count;
+
+        void record(long latencyNanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(latencies, count);
+        }
+    }
+
+    // leaf values are derived from their index, so a log of any size needs no storage
+    private static class SyntheticLeafStore implements MerkleLeafStore {
+        private final AtomicInteger treeSize;
+        private final long leafReadLatencyNanos;
+        private final AtomicLong leafReads = new AtomicLong();
+
+        SyntheticLeafStore(AtomicInteger treeSize, long leafReadLatencyNanos) {
+            this.treeSize = treeSize;
+            this.leafReadLatencyNanos = leafReadLatencyNanos;
+        }
+
+        @Override
+        public byte[] getLeafValue(int leafIndex) {
+            leafReads.incrementAndGet();
+            if (leafReadLatencyNanos > 0) {
+                LockSupport.parkNanos(leafReadLatencyNanos);
+            }
+            return new byte[]{(byte) (leafIndex >>> 24), (byte) (leafIndex >>> 16), (byte) (leafIndex >>> 8), (byte) leafIndex};
+        }
+
+        @Override
+        public int totalLeaves() {
+            return treeSize.get();
+        }
+    }
+
+    private static class SynchronizedMemoizationStore implements MemoizationStore {
+        private final MemoizationStore memoizationStore;
+
+        SynchronizedMemoizationStore(MemoizationStore memoizationStore) {
+            this.memoizationStore = memoizationStore;
+        }
+
+        @Override
+        public synchronized void put(Integer start, Integer size, byte[] value) {
+            memoizationStore.put(start, size, value);
+        }
+
+        @Override
+        public synchronized byte[] get(Integer start, Integer size) {
+            return memoizationStore.get(start, size);
+        }
+    }
+
+    private static class CountingMemoizationStore implements MemoizationStore {
+        private final MemoizationStore memoizationStore;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        CountingMemoizationStore(MemoizationStore memoizationStore) {
+            this.memoizationStore = memoizationStore;
+        }
+
+        @Override
+        public void put(Integer start, Integer size, byte[] value) {
+            memoizationStore.put(start, size, value);
+        }
+
+        @Override
+        public byte[] get(Integer start, Integer size) {
+            byte[] value = memoizationStore.get(start, size);
+            (value == null ? misses : hits).incrementAndGet();
+            return value;
+        }
+
+        void reset() {
+            hits.set(0);
+            misses.set(0);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package uk.gov.verifiablelog.simulation;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+public class WorkloadSimulatorTests {
+    @Test
+    public void smallWorkload_completesAllRequestsAndReports() throws Exception {
+        WorkloadSimulator.Configuration configuration = new WorkloadSimulator.Configuration()
+                .initialTreeSize(10_000)
+                .threads(4)
+                .operations(2_000)
+                .appendsPerSecond(10_000)
+                .memoizationStore("InMemoryPowOfTwo");
+
+        WorkloadSimulator.Report report = new WorkloadSimulator(configuration).run();
+
+        assertThat(report.getOperations(), is(2_000));
+        assertThat(report.getOperations(WorkloadSimulator.Operation.AUDIT_PROOF), greaterThan(report.getOperations(WorkloadSimulator.Operation.CONSISTENCY_PROOF)));
+        assertThat(report.getOperations(WorkloadSimulator.Operation.CONSISTENCY_PROOF), greaterThan(report.getOperations(WorkloadSimulator.Operation.TREE_HEAD)));
+        assertThat(report.getMemoHitRate(), greaterThan(0.5));
+        assertThat(report.latencyNanos(WorkloadSimulator.Operation.AUDIT_PROOF, 50), lessThanOrEqualTo(report.latencyNanos(WorkloadSimulator.Operation.AUDIT_PROOF, 99.9)));
+    }
+}
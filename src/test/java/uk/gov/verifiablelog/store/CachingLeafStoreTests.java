@@ -0,0 +1,162 @@
+package uk.gov.verifiablelog.store;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import uk.gov.verifiablelog.VerifiableLog;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+@RunWith(Parameterized.class)
+public class CachingLeafStoreTests {
+    @Parameterized.Parameters(name = "offHeap={0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private final boolean offHeap;
+
+    public CachingLeafStoreTests(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    @Test
+    public void repeatedReads_areServedFromCache() {
+        CountingLeafStore backingStore = new CountingLeafStore(leaves(100, 10));
+        CachingLeafStore cachingStore = new CachingLeafStore(backingStore, 1 << 20, offHeap);
+
+        for (int round = 0; round < 3; round++) {
+            for (int leafIndex = 0; leafIndex < 100; leafIndex++) {
+                assertThat(cachingStore.getLeafValue(leafIndex), is(backingStore.leaves.get(leafIndex)));
+            }
+        }
+
+        assertThat(backingStore.reads, is(100));
+        assertThat(cachingStore.getHits(), is(200L));
+        assertThat(cachingStore.getMisses(), is(100L));
+    }
+
+    @Test
+    public void lowestIndexesAreEvictedFirst() {
+        CountingLeafStore backingStore = new CountingLeafStore(leaves(100, 100));
+        CachingLeafStore cachingStore = new CachingLeafStore(backingStore, 10 * cost(100), offHeap);
+
+        for (int leafIndex = 0; leafIndex < 100; leafIndex++) {
+            cachingStore.getLeafValue(leafIndex);
+        }
+        backingStore.reads = 0;
+        for (int leafIndex = 90; leafIndex < 100; leafIndex++) {
+            cachingStore.getLeafValue(leafIndex);
+        }
+
+        assertThat(backingStore.reads, is(0));
+        assertThat(cachingStore.size(), is(10));
+        assertThat(cachingStore.getBytesUsed(), lessThanOrEqualTo(10 * cost(100)));
+    }
+
+    @Test
+    public void leafLowerThanAllCachedLeaves_isNotCachedWhenFull() {
+        CountingLeafStore backingStore = new CountingLeafStore(leaves(100, 100));
+        CachingLeafStore cachingStore = new CachingLeafStore(backingStore, 10 * cost(100), offHeap);
+        for (int leafIndex = 90; leafIndex < 100; leafIndex++) {
+            cachingStore.getLeafValue(leafIndex);
+        }
+
+        cachingStore.getLeafValue(0);
+        cachingStore.getLeafValue(0);
+        backingStore.reads = 0;
+        for (int leafIndex = 90; leafIndex < 100; leafIndex++) {
+            cachingStore.getLeafValue(leafIndex);
+        }
+
+        assertThat(cachingStore.getMisses(), is(12L));
+        assertThat(backingStore.reads, is(0));
+    }
+
+    @Test
+    public void leafLargerThanBudget_isNotCached() {
+        CachingLeafStore cachingStore = new CachingLeafStore(new CountingLeafStore(leaves(1, 1000)), 500, offHeap);
+
+        assertThat(cachingStore.getLeafValue(0).length, is(1000));
+        assertThat(cachingStore.size(), is(0));
+        assertThat(cachingStore.getBytesUsed(), is(0L));
+    }
+
+    @Test
+    public void randomReadsOfVaryingSizes_alwaysReturnTheBackingValues() {
+        Random random = new Random(49);
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            byte[] leaf = new byte[random.nextInt(300)];
+            random.nextBytes(leaf);
+            leaves.add(leaf);
+        }
+        CachingLeafStore cachingStore = new CachingLeafStore(new CountingLeafStore(leaves), 20_000, offHeap);
+
+        for (int read = 0; read < 20_000; read++) {
+            // mostly reads near the end, as a growing log does
+            int leafIndex = random.nextInt(4) == 0 ? random.nextInt(2000) : 2000 - 1 - random.nextInt(100);
+            assertThat(cachingStore.getLeafValue(leafIndex), is(leaves.get(leafIndex)));
+            assertThat(cachingStore.getBytesUsed(), lessThanOrEqualTo(20_000L));
+        }
+        assertThat(cachingStore.getHits() > cachingStore.getMisses(), is(true));
+    }
+
+    @Test
+    public void verifiableLog_givesSameResultsThroughCache() throws NoSuchAlgorithmException {
+        List<byte[]> leaves = leaves(300, 20);
+        VerifiableLog expected = new VerifiableLog(MessageDigest.getInstance("SHA-256"), new CountingLeafStore(leaves));
+        VerifiableLog verifiableLog = new VerifiableLog(MessageDigest.getInstance("SHA-256"), new CachingLeafStore(new CountingLeafStore(leaves), 2_000, offHeap));
+
+        for (int treeSize = 1; treeSize <= 300; treeSize += 17) {
+            assertThat(bytesToString(verifiableLog.getSpecificRootHash(treeSize)), is(bytesToString(expected.getSpecificRootHash(treeSize))));
+            assertThat(bytesToString(verifiableLog.auditProof(treeSize - 1, treeSize)), is(bytesToString(expected.auditProof(treeSize - 1, treeSize))));
+        }
+    }
+
+    private long cost(int length) {
+        return offHeap ? length : length + CachingLeafStore.ENTRY_OVERHEAD_BYTES;
+    }
+
+    private static List<byte[]> leaves(int count, int length) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] leaf = new byte[length];
+            Arrays.fill(leaf, (byte) i);
+            leaves.add(leaf);
+        }
+        return leaves;
+    }
+
+    private static class CountingLeafStore implements MerkleLeafStore {
+        private final List<byte[]> leaves;
+        private int reads;
+
+        CountingLeafStore(List<byte[]> leaves) {
+            this.leaves = leaves;
+        }
+
+        @Override
+        public synchronized byte[] getLeafValue(int leafIndex) {
+            reads++;
+            return leaves.get(leafIndex);
+        }
+
+        @Override
+        public int totalLeaves() {
+            return leaves.size();
+        }
+    }
+}
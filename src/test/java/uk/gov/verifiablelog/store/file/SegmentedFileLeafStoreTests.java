@@ -0,0 +1,124 @@
+package uk.gov.verifiablelog.store.file;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.gov.verifiablelog.VerifiableLog;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class SegmentedFileLeafStoreTests {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void append_thenReadBackLeafValues() throws Exception {
+        try (SegmentedFileLeafStore store = new SegmentedFileLeafStore(temporaryFolder.getRoot().toPath(), 64)) {
+            for (int i = 0; i < 100; i++) {
+                assertThat(store.append(leafValue(i)), is(i));
+            }
+
+            assertThat(store.totalLeaves(), is(100));
+            for (int i = 0; i < 100; i++) {
+                assertThat(bytesToString(store.getLeafValue(i)), is(bytesToString(leafValue(i))));
+            }
+        }
+    }
+
+    @Test
+    public void append_rollsOverToNewSegments() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (SegmentedFileLeafStore store = new SegmentedFileLeafStore(directory, 16)) {
+            for (int i = 0; i < 10; i++) {
+                store.append(new byte[6]);
+            }
+        }
+
+        // two six-byte values fit in each sixteen-byte segment
+        assertThat(Files.exists(directory.resolve("segment-000004")), is(true));
+        assertThat(Files.exists(directory.resolve("segment-000005")), is(false));
+    }
+
+    @Test
+    public void reopenedStore_hasSameLeavesAndContinuesAppending() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (SegmentedFileLeafStore store = new SegmentedFileLeafStore(directory, 64)) {
+            for (int i = 0; i < 50; i++) {
+                store.append(leafValue(i));
+            }
+        }
+
+        try (SegmentedFileLeafStore store = new SegmentedFileLeafStore(directory, 64)) {
+            assertThat(store.totalLeaves(), is(50));
+            assertThat(store.append(leafValue(50)), is(50));
+            for (int i = 0; i <= 50; i++) {
+                assertThat(bytesToString(store.getLeafValue(i)), is(bytesToString(leafValue(i))));
+            }
+        }
+    }
+
+    @Test
+    public void getLeafBuffers_returnsRangeWithoutCopying() throws Exception {
+        try (SegmentedFileLeafStore store = new SegmentedFileLeafStore(temporaryFolder.getRoot().toPath(), 64)) {
+            for (int i = 0; i < 10; i++) {
+                store.append(leafValue(i));
+            }
+
+            List<ByteBuffer> leafBuffers = store.getLeafBuffers(3, 7);
+
+            assertThat(leafBuffers.size(), is(4));
+            for (int i = 0; i < 4; i++) {
+                assertThat(leafBuffers.get(i).isDirect(), is(true));
+                assertThat(leafBuffers.get(i).isReadOnly(), is(true));
+                assertThat(leafBuffers.get(i).remaining(), is(leafValue(3 + i).length));
+            }
+        }
+    }
+
+    @Test
+    public void verifiableLog_computesSameRootHashFromFileStore() throws Exception {
+        List<byte[]> leafValues = new ArrayList<>();
+        try (SegmentedFileLeafStore store = new SegmentedFileLeafStore(temporaryFolder.getRoot().toPath(), 256)) {
+            for (int i = 0; i < 1000; i++) {
+                leafValues.add(leafValue(i));
+                store.append(leafValue(i));
+            }
+            VerifiableLog verifiableLog = new VerifiableLog(MessageDigest.getInstance("SHA-256"), store);
+
+            assertThat(bytesToString(verifiableLog.getCurrentRootHash()), is(bytesToString(makeVerifiableLog(leafValues).getCurrentRootHash())));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void append_rejectsValueLargerThanSegment() throws Exception {
+        try (SegmentedFileLeafStore store = new SegmentedFileLeafStore(temporaryFolder.getRoot().toPath(), 16)) {
+            store.append(new byte[17]);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getLeafValue_rejectsIndexBeyondTotalLeaves() throws Exception {
+        try (SegmentedFileLeafStore store = new SegmentedFileLeafStore(temporaryFolder.getRoot().toPath(), 16)) {
+            store.append(new byte[1]);
+            store.getLeafValue(1);
+        }
+    }
+
+    private static byte[] leafValue(int i) {
+        byte[] leafValue = new byte[1 + i % 13];
+        for (int j = 0; j < leafValue.length; j++) {
+            leafValue[j] = (byte) (i + j);
+        }
+        return leafValue;
+    }
+}
@@ -0,0 +1,63 @@
+package uk.gov.verifiablelog.store.memoization;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class BudgetedInMemoryTests {
+    private static final long ENTRY_BYTES = 32 + BudgetedInMemory.ENTRY_OVERHEAD_BYTES;
+
+    @Test
+    public void put_evictsLeastRecentlyUsedWhenOverBudget() {
+        BudgetedInMemory store = new BudgetedInMemory(2 * ENTRY_BYTES);
+        store.put(0, 1, new byte[32]);
+        store.put(1, 1, new byte[32]);
+        store.get(0, 1);
+
+        store.put(2, 1, new byte[32]);
+
+        assertThat(store.get(1, 1), is(nullValue()));
+        assertThat(store.get(0, 1).length, is(32));
+        assertThat(store.get(2, 1).length, is(32));
+        assertThat(store.getBytesUsed(), is(2 * ENTRY_BYTES));
+    }
+
+    @Test
+    public void setBudgetBytes_evictsDownToNewBudget() {
+        BudgetedInMemory store = new BudgetedInMemory(10 * ENTRY_BYTES);
+        for (int i = 0; i < 10; i++) {
+            store.put(i, 1, new byte[32]);
+        }
+
+        store.setBudgetBytes(3 * ENTRY_BYTES);
+
+        assertThat(store.size(), is(3));
+        assertThat(store.get(9, 1).length, is(32));
+        assertThat(store.get(0, 1), is(nullValue()));
+    }
+
+    @Test
+    public void get_countsHitsAndMisses() {
+        BudgetedInMemory store = new BudgetedInMemory(ENTRY_BYTES);
+        store.put(0, 2, new byte[32]);
+
+        store.get(0, 2);
+        store.get(0, 2);
+        store.get(2, 2);
+
+        assertThat(store.getHits(), is(2L));
+        assertThat(store.getMisses(), is(1L));
+    }
+
+    @Test
+    public void put_ignoresHashesLargerThanBudget() {
+        BudgetedInMemory store = new BudgetedInMemory(ENTRY_BYTES - 1);
+
+        store.put(0, 1, new byte[32]);
+
+        assertThat(store.size(), is(0));
+        assertThat(store.getBytesUsed(), is(0L));
+    }
+}
@@ -0,0 +1,79 @@
+package uk.gov.verifiablelog.store.memoization;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.VerifiableLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class ConcurrentPowOfTwoTests {
+    @Test
+    public void should_storeHashesForPowerOfTwoSubrees() {
+        ConcurrentPowOfTwo powOfTwoStore = new ConcurrentPowOfTwo();
+        // Test tree
+        //                     (0,7)
+        //          0,4                     (4,3)
+        //    0,2         2,2         4,2
+        // 0,1   1,1   2,1   3,1   4,1   5,1        6,1
+
+        powOfTwoStore.put(0, 1, stringToBytes("01"));
+        powOfTwoStore.put(6, 1, stringToBytes("61"));
+        powOfTwoStore.put(4, 2, stringToBytes("42"));
+        powOfTwoStore.put(0, 4, stringToBytes("04"));
+        powOfTwoStore.put(4, 3, stringToBytes("43"));
+        powOfTwoStore.put(0, 7, stringToBytes("07"));
+
+        assertThat(bytesToString(powOfTwoStore.get(0, 1)), is("01"));
+        assertThat(bytesToString(powOfTwoStore.get(6, 1)), is("61"));
+        assertThat(bytesToString(powOfTwoStore.get(4, 2)), is("42"));
+        assertThat(bytesToString(powOfTwoStore.get(0, 4)), is("04"));
+        assertThat(powOfTwoStore.get(2, 2), is(nullValue()));
+        assertThat(powOfTwoStore.get(4, 3), is(nullValue()));
+        assertThat(powOfTwoStore.get(0, 7), is(nullValue()));
+    }
+
+    @Test
+    public void should_storeHashesForSubtreesAtLargeIndexes() {
+        ConcurrentPowOfTwo powOfTwoStore = new ConcurrentPowOfTwo();
+
+        powOfTwoStore.put(Integer.MAX_VALUE, 1, stringToBytes("01"));
+        powOfTwoStore.put(1 << 30, 1 << 30, stringToBytes("02"));
+
+        assertThat(bytesToString(powOfTwoStore.get(Integer.MAX_VALUE, 1)), is("01"));
+        assertThat(bytesToString(powOfTwoStore.get(1 << 30, 1 << 30)), is("02"));
+        assertThat(powOfTwoStore.get(0, 1 << 30), is(nullValue()));
+    }
+
+    @Test
+    public void should_giveSameResultsAsUnmemoizedLog_whenSharedByManyThreads() throws Exception {
+        List<byte[]> leafValues = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            leafValues.add(Integer.toString(i).getBytes());
+        }
+        VerifiableLog nonMemoizedLog = makeVerifiableLog(leafValues);
+        VerifiableLog memoizedLog = makeVerifiableLog(leafValues, new ConcurrentPowOfTwo());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> rootHashes = new ArrayList<>();
+            for (int treeSize = 1000; treeSize <= 2000; treeSize += 10) {
+                int size = treeSize;
+                rootHashes.add(executorService.submit(() -> bytesToString(memoizedLog.getSpecificRootHash(size))));
+            }
+            for (int i = 0; i < rootHashes.size(); i++) {
+                assertThat(rootHashes.get(i).get(), is(bytesToString(nonMemoizedLog.getSpecificRootHash(1000 + 10 * i))));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package uk.gov.verifiablelog.store.memoization;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.VerifiableLog;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
+import static uk.gov.verifiablelog.TestUtil.bytesToString;
+import static uk.gov.verifiablelog.TestUtil.stringToBytes;
+
+public class InMemoryPowOfTwoFromLevelTests {
+    @Test
+    public void should_storeHashesForPowerOfTwoSubtreesFromMinLevel() {
+        InMemoryPowOfTwoFromLevel store = new InMemoryPowOfTwoFromLevel(2);
+
+        store.put(0, 1, stringToBytes("01"));
+        store.put(0, 2, stringToBytes("02"));
+        store.put(0, 4, stringToBytes("04"));
+        store.put(4, 4, stringToBytes("44"));
+        store.put(0, 8, stringToBytes("08"));
+        store.put(8, 3, stringToBytes("83"));
+
+        assertNull(store.get(0, 1));
+        assertNull(store.get(0, 2));
+        assertThat(bytesToString(store.get(0, 4)), is("04"));
+        assertThat(bytesToString(store.get(4, 4)), is("44"));
+        assertThat(bytesToString(store.get(0, 8)), is("08"));
+        assertThat(store.get(8, 3), is(nullValue()));
+    }
+
+    @Test
+    public void should_sampleSubtreesAboveMinLevel() {
+        InMemoryPowOfTwoFromLevel store = new InMemoryPowOfTwoFromLevel(1, 2);
+
+        for (int start = 0; start < 16; start += 2) {
+            store.put(start, 2, stringToBytes("02"));
+        }
+        for (int start = 0; start < 16; start += 4) {
+            store.put(start, 4, stringToBytes("04"));
+        }
+
+        for (int start = 0; start < 16; start += 2) {
+            assertThat(bytesToString(store.get(start, 2)), is("02"));
+        }
+        assertThat(bytesToString(store.get(0, 4)), is("04"));
+        assertNull(store.get(4, 4));
+        assertThat(bytesToString(store.get(8, 4)), is("04"));
+        assertNull(store.get(12, 4));
+    }
+
+    @Test
+    public void auditProof_readsAtMostMinLevelSizeLeavesPerLevel() throws Exception {
+        AtomicInteger leafReads = new AtomicInteger();
+        MerkleLeafStore leafStore = new MerkleLeafStore() {
+            @Override
+            public byte[] getLeafValue(int leafIndex) {
+                leafReads.incrementAndGet();
+                return new byte[]{(byte) leafIndex, (byte) (leafIndex >> 8)};
+            }
+
+            @Override
+            public int totalLeaves() {
+                return 10_000;
+            }
+        };
+        int minLevel = 4;
+        VerifiableLog verifiableLog = new VerifiableLog(MessageDigest.getInstance("SHA-256"), leafStore, new InMemoryPowOfTwoFromLevel(minLevel, 4));
+        VerifiableLog expected = new VerifiableLog(MessageDigest.getInstance("SHA-256"), leafStore, new InMemoryPowOfTwo());
+        verifiableLog.getCurrentRootHash();
+
+        for (int leafIndex = 0; leafIndex < 10_000; leafIndex += 997) {
+            String expectedSibling = bytesToString(expected.auditProof(leafIndex, 10_000).get(0));
+            leafReads.set(0);
+            assertThat(bytesToString(verifiableLog.auditProof(leafIndex, 10_000).get(0)), is(expectedSibling));
+            // the leaves around the leaf itself, plus those of a partial subtree at the right-hand edge of the tree
+            assertThat(leafReads.get(), lessThanOrEqualTo(2 * (1 << minLevel) + 10_000 % (1 << minLevel) + 1));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package uk.gov.verifiablelog.store.memoization;
+
+import org.junit.Test;
+import uk.gov.verifiablelog.VerifiableLog;
+import uk.gov.verifiablelog.store.MerkleLeafStore;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import static uk.gov.verifiablelog.TestUtil.*;
+
+public class WriteBehindTests {
+    @Test
+    public void put_doesNotWaitForBackingStore() throws Exception {
+        BlockingStore backingStore = new BlockingStore();
+        try (WriteBehind writeBehind = new WriteBehind(backingStore, 100, 10)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 50; i++) {
+                writeBehind.put(i, 1, new byte[]{(byte) i});
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertThat(elapsedMillis, lessThan(1000L));
+            assertThat(writeBehind.get(49, 1)[0], is((byte) 49));
+            backingStore.release.countDown();
+        }
+        assertThat(backingStore.get(49, 1)[0], is((byte) 49));
+    }
+
+    @Test
+    public void flush_writesAllQueuedHashesToBackingStore() {
+        ConcurrentPowOfTwo backingStore = new ConcurrentPowOfTwo();
+        try (WriteBehind writeBehind = new WriteBehind(backingStore, 1000, 64)) {
+            for (int i = 0; i < 500; i++) {
+                writeBehind.put(i, 1, new byte[]{(byte) i});
+            }
+
+            writeBehind.flush();
+
+            assertThat(writeBehind.getPendingCount(), is(0));
+            for (int i = 0; i < 500; i++) {
+                assertThat(backingStore.get(i, 1)[0], is((byte) i));
+            }
+        }
+    }
+
+    @Test
+    public void writer_writesEachBatchWithOnePutAll() {
+        BatchCountingStore backingStore = new BatchCountingStore();
+        try (WriteBehind writeBehind = new WriteBehind(backingStore, 1000, 64)) {
+            for (int i = 0; i < 500; i++) {
+                writeBehind.put(i, 1, new byte[]{(byte) i});
+            }
+
+            writeBehind.flush();
+
+            assertThat(backingStore.singlePuts.get(), is(0));
+            assertThat(backingStore.largestBatch.get(), lessThanOrEqualTo(64));
+            assertThat(backingStore.batchedPuts.get(), is(500));
+            assertThat(backingStore.get(499, 1)[0], is((byte) 499));
+        }
+    }
+
+    @Test
+    public void getAll_combinesPendingAndWrittenHashes() {
+        BlockingStore backingStore = new BlockingStore();
+        backingStore.release.countDown();
+        try (WriteBehind writeBehind = new WriteBehind(backingStore, 100, 10)) {
+            writeBehind.put(0, 1, new byte[]{0});
+            writeBehind.flush();
+            writeBehind.put(1, 1, new byte[]{1});
+
+            Map<Subtree, byte[]> values = writeBehind.getAll(Arrays.asList(new Subtree(0, 1), new Subtree(1, 1), new Subtree(2, 1)));
+
+            assertThat(values.size(), is(2));
+            assertThat(values.get(new Subtree(0, 1))[0], is((byte) 0));
+            assertThat(values.get(new Subtree(1, 1))[0], is((byte) 1));
+        }
+    }
+
+    @Test
+    public void put_dropsHashesWhenTooManyArePending() {
+        BlockingStore backingStore = new BlockingStore();
+        try (WriteBehind writeBehind = new WriteBehind(backingStore, 4, 1)) {
+            for (int i = 0; i < 20; i++) {
+                writeBehind.put(i, 1, new byte[]{(byte) i});
+            }
+
+            // one hash may already be held by the blocked writer, and at most four more can wait
+            assertThat(writeBehind.getDroppedCount() >= 15, is(true));
+            assertThat(writeBehind.get(19, 1), is(nullValue()));
+            backingStore.release.countDown();
+        }
+    }
+
+    @Test
+    public void close_writesEveryHashNotDropped_whilePutsRace() throws Exception {
+        ConcurrentPowOfTwo backingStore = new ConcurrentPowOfTwo();
+        WriteBehind writeBehind = new WriteBehind(backingStore, 100_000, 64);
+        int threads = 4;
+        int putsPerThread = 5_000;
+        CountDownLatch started = new CountDownLatch(threads);
+        List<Thread> putters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t * putsPerThread;
+            Thread putter = new Thread(() -> {
+                started.countDown();
+                for (int i = first; i < first + putsPerThread; i++) {
+                    writeBehind.put(i, 1, new byte[]{(byte) i});
+                }
+            });
+            putter.start();
+            putters.add(putter);
+        }
+        started.await();
+
+        writeBehind.close();
+        for (Thread putter : putters) {
+            putter.join();
+        }
+
+        int written = 0;
+        for (int i = 0; i < threads * putsPerThread; i++) {
+            if (backingStore.get(i, 1) != null) {
+                written++;
+            }
+        }
+        assertThat(writeBehind.getPendingCount(), is(0));
+        assertThat(written + writeBehind.getDroppedCount(), is((long) threads * putsPerThread));
+    }
+
+    @Test
+    public void verifiableLog_computesSameRootHashThroughWriteBehind() throws Exception {
+        MerkleLeafStore leafStore = new MerkleLeafStore() {
+            @Override
+            public byte[] getLeafValue(int leafIndex) {
+                return new byte[]{(byte) leafIndex};
+            }
+
+            @Override
+            public int totalLeaves() {
+                return 1000;
+            }
+        };
+        ConcurrentPowOfTwo backingStore = new ConcurrentPowOfTwo();
+        try (WriteBehind writeBehind = new WriteBehind(backingStore, 10_000, 256)) {
+            VerifiableLog verifiableLog = new VerifiableLog(MessageDigest.getInstance("SHA-256"), leafStore, writeBehind);
+            VerifiableLog expected = new VerifiableLog(MessageDigest.getInstance("SHA-256"), leafStore);
+
+            assertThat(bytesToString(verifiableLog.getCurrentRootHash()), is(bytesToString(expected.getCurrentRootHash())));
+            writeBehind.flush();
+            assertThat(bytesToString(backingStore.get(0, 512)), is(bytesToString(expected.getSpecificRootHash(512))));
+        }
+    }
+
+    private static class BatchCountingStore implements MemoizationStore {
+        final AtomicInteger singlePuts = new AtomicInteger();
+        final AtomicInteger batchedPuts = new AtomicInteger();
+        final AtomicInteger largestBatch = new AtomicInteger();
+        private final ConcurrentPowOfTwo store = new ConcurrentPowOfTwo();
+
+        @Override
+        public void put(Integer start, Integer size, byte[] value) {
+            singlePuts.incrementAndGet();
+            store.put(start, size, value);
+        }
+
+        @Override
+        public void putAll(Map<Subtree, byte[]> values) {
+            batchedPuts.addAndGet(values.size());
+            largestBatch.accumulateAndGet(values.size(), Math::max);
+            values.forEach((subtree, value) -> store.put(subtree.getStart(), subtree.getSize(), value));
+        }
+
+        @Override
+        public byte[] get(Integer start, Integer size) {
+            return store.get(start, size);
+        }
+    }
+
+    private static class BlockingStore implements MemoizationStore {
+        final CountDownLatch release = new CountDownLatch(1);
+        private final ConcurrentPowOfTwo store = new ConcurrentPowOfTwo();
+
+        @Override
+        public void put(Integer start, Integer size, byte[] value) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            store.put(start, size, value);
+        }
+
+        @Override
+        public byte[] get(Integer start, Integer size) {
+            return store.get(start, size);
+        }
+    }
+}